@@ -0,0 +1,98 @@
+package com.quickpark.parkinglot.benchmark;
+
+import com.quickpark.parkinglot.ParkinglotApplication;
+import com.quickpark.parkinglot.entities.User;
+import com.quickpark.parkinglot.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Boots the real application context against an in-memory H2 database for the benchmarks.
+ * -Dbenchmark.datasource.url (with .username and .password) points it at a MySQL schema instead,
+ * whose tables are dropped and recreated on every trial, so never at one holding data.
+ * The web layer is started on a random port because the security config needs it,
+ * but the benchmarks call the services directly.
+ */
+final class BenchmarkApplication {
+
+    static final String USER_EMAIL = "bench@quickpark.test";
+
+    private static final AtomicLong vehicleSequence = new AtomicLong();
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> properties) {
+        // Passed as command line arguments so they win over application.properties and .env
+        Map<String, Object> defaults = new LinkedHashMap<>();
+        defaults.put("server.port", "0");
+        String url = System.getProperty("benchmark.datasource.url");
+        if (url == null) {
+            defaults.put("spring.datasource.url", "jdbc:h2:mem:quickpark-bench;MODE=MySQL;DB_CLOSE_DELAY=-1");
+            defaults.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            defaults.put("spring.datasource.username", "sa");
+            defaults.put("spring.datasource.password", "");
+        } else {
+            defaults.put("spring.datasource.url", url);
+            defaults.put("spring.datasource.username", System.getProperty("benchmark.datasource.username", "root"));
+            defaults.put("spring.datasource.password", System.getProperty("benchmark.datasource.password", ""));
+        }
+        defaults.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        defaults.put("JWT_SECRET", "benchmark-secret-benchmark-secret-benchmark-secret");
+        defaults.put("ADMIN_SECRET_KEY", "benchmark-admin-key");
+        defaults.put("spring.mail.username", "bench@quickpark.test");
+        defaults.put("spring.mail.password", "unused");
+        defaults.put("logging.level.root", "ERROR");
+        defaults.put("logging.level.com.quickpark.parkinglot", "ERROR");
+        defaults.putAll(properties);
+        String[] args = defaults.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(ParkinglotApplication.class)
+                .run(args);
+    }
+
+    // Insert spots with plain JDBC batches, going through AdminService would dominate the setup time
+    static void provisionSpots(ConfigurableApplicationContext context, String type, int section, int cost, int count) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        String discriminator = Character.toUpperCase(type.charAt(0)) + type.substring(1) + "ParkingSpot";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String location = "S" + section + "-R" + (i / 10 + 1) + "-C" + (i % 10 + 1);
+            batch.add(new Object[] { discriminator, 0L, type, cost, location, true, false, now, now });
+            if (batch.size() == 5000 || i == count - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO parking_spots (dtype, version, type, cost, location, "
+                        + "is_active, is_booked, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    static void createUser(ConfigurableApplicationContext context, String email) {
+        User user = new User("Bench", "User", email, "9876543210", "unused", "Benchmark Street", "USER",
+                LocalDateTime.now(), null, null);
+        user.setEmailVerified(true);
+        context.getBean(UserRepository.class).save(user);
+    }
+
+    // Unique, valid vehicle numbers: KA + 2 digits + 2 letters + 4 digits
+    static String nextVehicleNo() {
+        long n = vehicleSequence.getAndIncrement();
+        long serial = n % 10000;
+        long rest = n / 10000;
+        char first = (char) ('A' + rest % 26);
+        char second = (char) ('A' + (rest / 26) % 26);
+        long district = (rest / 676) % 100;
+        return String.format("KA%02d%c%c%04d", district, first, second, serial);
+    }
+}
@@ -0,0 +1,150 @@
+package com.quickpark.parkinglot.benchmark;
+
+import com.quickpark.parkinglot.Exceptions.ParkingLotException;
+import com.quickpark.parkinglot.entities.ParkedTicket;
+import com.quickpark.parkinglot.entities.UnparkedTicket;
+import com.quickpark.parkinglot.request.ParkRequest;
+import com.quickpark.parkinglot.service.IParkingService;
+import com.quickpark.parkinglot.service.ParkingMetrics;
+import com.quickpark.parkinglot.service.SpotAllocator;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Park and unpark latency/throughput of ParkingService against an embedded H2 database
+ * (or MySQL, see BenchmarkApplication).
+ * Throughput gives ops/ms, SampleTime gives the latency distribution including p0.99.
+ * Thread count is a JMH option: -Djmh.args="-t 16"
+ * Every park is undone (and every unpark prepared) outside the measured call, so the lot
+ * never fills up and each lot size is measured at the same occupancy.
+ * The optimistic-lock retries, the atomic claim retries and the mean unpark transaction time (how long
+ * an unpark holds its row locks) of each iteration are printed at the end of the iteration.
+ * H2 does not represent claimMode=atomic: it applies LIMIT before SKIP LOCKED, so while one claim
+ * holds the first free row every other claim comes back empty and retries. There the atomic mode
+ * measures claims serialised on one row, run it against MySQL for the real SKIP LOCKED behaviour.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@State(Scope.Benchmark)
+public class ParkingBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int lotSize;
+
+    @Param({ "pool", "atomic", "optimistic" })
+    public String claimMode;
+
+    ConfigurableApplicationContext context;
+    IParkingService parkingService;
+    SpotAllocator spotAllocator;
+    ParkingMetrics metrics;
+    Timer unparkTransactions;
+    private long retriesAtIterationStart;
+    private long atomicRetriesAtIterationStart;
+    private long unparksAtIterationStart;
+    private double unparkNanosAtIterationStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of("parking.spot.claim-mode", claimMode));
+        BenchmarkApplication.provisionSpots(context, "compact", 2, 35, lotSize);
+        BenchmarkApplication.createUser(context, BenchmarkApplication.USER_EMAIL);
+        parkingService = context.getBean(IParkingService.class);
+        spotAllocator = context.getBean(SpotAllocator.class);
+        metrics = context.getBean(ParkingMetrics.class);
+        unparkTransactions = metrics.unparkTransactionTimer();
+        spotAllocator.loadFromDatabase();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        retriesAtIterationStart = spotAllocator.getOptimisticRetryCount();
+        atomicRetriesAtIterationStart = metrics.getClaimRetryCount("atomic");
+        unparksAtIterationStart = unparkTransactions.count();
+        unparkNanosAtIterationStart = unparkTransactions.totalTime(TimeUnit.NANOSECONDS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        System.out.println("optimistic-lock retries: "
+                + (spotAllocator.getOptimisticRetryCount() - retriesAtIterationStart));
+        System.out.println("atomic claim retries: "
+                + (metrics.getClaimRetryCount("atomic") - atomicRetriesAtIterationStart));
+        long unparks = unparkTransactions.count() - unparksAtIterationStart;
+        if (unparks > 0) {
+            double nanos = unparkTransactions.totalTime(TimeUnit.NANOSECONDS) - unparkNanosAtIterationStart;
+            System.out.printf("unpark transaction: %d, mean %.3f ms%n", unparks, nanos / unparks / 1_000_000);
+        }
+    }
+
+    ParkedTicket park() {
+        ParkRequest request = new ParkRequest("compact", BenchmarkApplication.nextVehicleNo(), null, null);
+        return parkingService.ParkVehicle(BenchmarkApplication.USER_EMAIL, request);
+    }
+
+    @State(Scope.Thread)
+    public static class ParkedVehicle {
+        ParkedTicket ticket;
+
+        @TearDown(Level.Invocation)
+        public void unpark(ParkingBenchmark benchmark) {
+            if (ticket != null) {
+                benchmark.parkingService.UnparkVehicle(ticket.getId(), ticket.getEmail());
+                ticket = null;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class VehicleToUnpark {
+        ParkedTicket ticket;
+
+        // The optimistic and atomic modes give up under contention, keep trying so the setup never aborts the run
+        @Setup(Level.Invocation)
+        public void park(ParkingBenchmark benchmark) {
+            ticket = null;
+            while (ticket == null) {
+                try {
+                    ticket = benchmark.park();
+                } catch (ParkingLotException e) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public ParkedTicket park(ParkedVehicle parked) {
+        parked.ticket = park();
+        return parked.ticket;
+    }
+
+    @Benchmark
+    public UnparkedTicket unpark(VehicleToUnpark vehicle) {
+        return parkingService.UnparkVehicle(vehicle.ticket.getId(), vehicle.ticket.getEmail());
+    }
+}
@@ -0,0 +1,100 @@
+package com.quickpark.parkinglot.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Requests per second of a park burst on Tomcat's default 200 platform threads vs virtual threads
+ * (spring.threads.virtual.enabled) when every database round trip takes dbLatencyMs.
+ * A park is modelled as its three statements (duplicate check, spot claim, ticket insert), each borrowing
+ * one of connectionPoolSize connections, so the effect of the Hikari pool limit shows up as well.
+ * backoffMs adds a wait that holds no connection, like the 50 ms Thread.sleep of an optimistic-lock retry.
+ * No database is involved, the latency is simulated with sleeps so the numbers only depend on the thread model.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@State(Scope.Benchmark)
+public class ThreadModeBenchmark {
+
+    private static final int CONCURRENT_REQUESTS = 2000;
+    private static final int STATEMENTS_PER_PARK = 3;
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    @Param({ "2", "20" })
+    public int dbLatencyMs;
+
+    @Param({ "10", "100" })
+    public int connectionPoolSize;
+
+    @Param({ "0", "50" })
+    public int backoffMs;
+
+    private ExecutorService executor;
+    private Semaphore connections;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        connections = new Semaphore(connectionPoolSize, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_REQUESTS)
+    public void parkBurst() throws Exception {
+        List<Future<?>> requests = new ArrayList<>(CONCURRENT_REQUESTS);
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            requests.add(executor.submit(this::park));
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+    }
+
+    private Void park() throws InterruptedException {
+        if (backoffMs > 0) {
+            Thread.sleep(backoffMs);
+        }
+        for (int i = 0; i < STATEMENTS_PER_PARK; i++) {
+            connections.acquire();
+            try {
+                Thread.sleep(dbLatencyMs);
+            } finally {
+                connections.release();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.quickpark.parkinglot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.quickpark.parkinglot.request.ParkRequest;
+import com.quickpark.parkinglot.request.SignupRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Binding and validating a park and a signup body, the Map + String.matches way the services used to do it
+ * against the request records + Validation. Run with -prof gc, gc.alloc.rate.norm is the bytes per request.
+ * Lives in the service package because the Validation checks are package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private static final String PARK_BODY = """
+            {"type":"compact","vehicleNo":"KA01AB1234","vehicleModel":"Swift"}""";
+    private static final String SIGNUP_BODY = """
+            {"firstName":"Asha","lastName":"Rao","email":"asha.rao@example.com","contactNo":"9876543210",\
+            "password":"Secret@123","address":"12 MG Road, Bengaluru"}""";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader mapReader = mapper.readerFor(new TypeReference<Map<String, String>>() {
+    });
+    private final ObjectReader parkReader = mapper.readerFor(ParkRequest.class);
+    private final ObjectReader signupReader = mapper.readerFor(SignupRequest.class);
+    private final Validation validation = new Validation();
+
+    @Benchmark
+    public boolean parkMap() throws Exception {
+        Map<String, String> body = mapReader.readValue(PARK_BODY);
+        String type = trim(body.get("type"));
+        String vehicleNo = trim(body.get("vehicleNo"));
+        trim(body.get("vehicleModel"));
+        return validation.isValidVehicleType(type)
+                && vehicleNo.matches("^[A-Z]{2}[0-9]{2}[A-Z]{1,2}[0-9]{4}$");
+    }
+
+    @Benchmark
+    public boolean parkRecord() throws Exception {
+        ParkRequest request = parkReader.readValue(PARK_BODY);
+        return validation.isValidVehicleType(request.type()) && validation.isVehicleNoValid(request.vehicleNo());
+    }
+
+    @Benchmark
+    public boolean signupMap() throws Exception {
+        Map<String, String> body = mapReader.readValue(SIGNUP_BODY);
+        trim(body.get("firstName"));
+        trim(body.get("lastName"));
+        trim(body.get("address"));
+        String email = trim(body.get("email"));
+        String contactNo = trim(body.get("contactNo"));
+        String password = trim(body.get("password"));
+        return email.matches("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$")
+                && contactNo.matches("^[6-9][0-9]{9}$")
+                && password.matches("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]{6,15}$");
+    }
+
+    @Benchmark
+    public boolean signupRecord() throws Exception {
+        SignupRequest request = signupReader.readValue(SIGNUP_BODY);
+        return validation.isValidEmail(request.email())
+                && validation.isValidContactNo(request.contactNo())
+                && validation.isValidPassword(request.password());
+    }
+
+    @Benchmark
+    public boolean vehicleNoRegex() {
+        return "KA01AB1234".matches("^[A-Z]{2}[0-9]{2}[A-Z]{1,2}[0-9]{4}$");
+    }
+
+    @Benchmark
+    public boolean vehicleNoScan() {
+        return validation.isVehicleNoValid("KA01AB1234");
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+}
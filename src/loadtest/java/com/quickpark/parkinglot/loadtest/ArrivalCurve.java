@@ -0,0 +1,75 @@
+package com.quickpark.parkinglot.loadtest;
+
+/*
+ * Arrival and departure rates over the run, as a fraction of the peak rate.
+ * progress goes from 0 (start of the run) to 1 (end of the run).
+ */
+enum ArrivalCurve {
+
+    // Gates flooded with arrivals peaking a third of the way in, hardly anyone leaves
+    MORNING_RUSH("morning-rush") {
+        @Override
+        double arrivals(double progress) {
+            return bell(progress, 0.35, 0.15);
+        }
+
+        @Override
+        double departures(double progress) {
+            return 0.05;
+        }
+    },
+
+    // The lot is filled first, then everyone leaves around two thirds of the way in
+    EVENING_EXODUS("evening-exodus") {
+        @Override
+        double arrivals(double progress) {
+            return progress < 0.25 ? 0.6 : 0.05;
+        }
+
+        @Override
+        double departures(double progress) {
+            return progress < 0.25 ? 0.0 : bell(progress, 0.65, 0.12);
+        }
+    },
+
+    // A normal day, arrivals and departures drifting around each other
+    MIXED("mixed") {
+        @Override
+        double arrivals(double progress) {
+            return 0.5 + 0.3 * Math.sin(progress * 4 * Math.PI);
+        }
+
+        @Override
+        double departures(double progress) {
+            return progress < 0.1 ? 0.1 : 0.5 + 0.3 * Math.cos(progress * 4 * Math.PI);
+        }
+    };
+
+    private final String name;
+
+    ArrivalCurve(String name) {
+        this.name = name;
+    }
+
+    abstract double arrivals(double progress);
+
+    abstract double departures(double progress);
+
+    String getName() {
+        return name;
+    }
+
+    static ArrivalCurve fromName(String name) {
+        for (ArrivalCurve curve : values()) {
+            if (curve.name.equalsIgnoreCase(name)) {
+                return curve;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario: " + name + ", use morning-rush, evening-exodus or mixed");
+    }
+
+    private static double bell(double progress, double peakAt, double width) {
+        double distance = (progress - peakAt) / width;
+        return Math.exp(-0.5 * distance * distance);
+    }
+}
@@ -0,0 +1,93 @@
+package com.quickpark.parkinglot.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latency histogram and outcome counters of one endpoint.
+ * 429s are counted apart from the errors: they mean the server's rate limits refused the load, not that it failed.
+ * Latency is measured from the time the request was scheduled to be sent, not from when it was sent,
+ * so a server that falls behind shows up in the percentiles instead of silently slowing the generator down.
+ */
+class EndpointStats {
+
+    private final String endpoint;
+    // microseconds, up to one minute with 3 significant digits
+    private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void record(long scheduledAtNanos, String outcome, boolean error) {
+        record(scheduledAtNanos, outcome, error ? errors : null);
+    }
+
+    // A 429 from the server's rate limits
+    void recordRateLimited(long scheduledAtNanos) {
+        record(scheduledAtNanos, "429", rateLimited);
+    }
+
+    private void record(long scheduledAtNanos, String outcome, LongAdder counter) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledAtNanos);
+        latency.recordValue(Math.min(Math.max(micros, 0), latency.getHighestTrackableValue()));
+        requests.increment();
+        if (counter != null) {
+            counter.increment();
+        }
+        outcomes.computeIfAbsent(outcome, o -> new LongAdder()).increment();
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    double getErrorRate() {
+        return rate(errors);
+    }
+
+    double getRateLimitedRate() {
+        return rate(rateLimited);
+    }
+
+    private double rate(LongAdder counter) {
+        long total = requests.sum();
+        return total == 0 ? 0 : (double) counter.sum() / total;
+    }
+
+    // HdrHistogram percentile distribution in milliseconds, loadable in the HdrHistogram plotter
+    void writeHistogram(Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            latency.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    String summary() {
+        Map<String, Long> sortedOutcomes = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> sortedOutcomes.put(outcome, count.sum()));
+        return String.format("%-8s requests=%d errors=%d errorRate=%.2f%% rateLimited=%d rateLimitedRate=%.2f%% "
+                + "p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms outcomes=%s",
+                endpoint, requests.sum(), errors.sum(), getErrorRate() * 100,
+                rateLimited.sum(), getRateLimitedRate() * 100,
+                latency.getValueAtPercentile(50) / 1000.0,
+                latency.getValueAtPercentile(90) / 1000.0,
+                latency.getValueAtPercentile(99) / 1000.0,
+                latency.getValueAtPercentile(99.9) / 1000.0,
+                latency.getMaxValue() / 1000.0,
+                sortedOutcomes);
+    }
+}
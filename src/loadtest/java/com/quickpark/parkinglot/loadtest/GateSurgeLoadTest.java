@@ -0,0 +1,313 @@
+package com.quickpark.parkinglot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Load generator for the gates: drives the real /park and /unpark endpoints of a running
+ * QuickPark instance with an arrival/departure curve and writes HdrHistogram latency reports
+ * and error rates per endpoint.
+ *
+ * Run: mvn -P loadtest test-compile exec:java -Dloadtest.users=users.csv -Dloadtest.scenario=morning-rush
+ *
+ * Requests are sent open loop: they are scheduled by the curve, not by the previous response,
+ * so the rate does not drop when the server slows down.
+ *
+ * The server's rate limits are sized for real clients, not for a generator: signin allows 10 per IP and
+ * minute, and /park 20 at once then 60 per minute per user. Run the instance under test with
+ * RATE_LIMIT_ENABLED=false, otherwise signing the users in fails after the 10th and most parks come back 429.
+ * Minting tokens with loadtest.jwt-secret avoids the signins. 429s are reported apart from the errors.
+ *
+ * System properties (all optional except loadtest.users):
+ * loadtest.base-url         http://localhost:8080
+ * loadtest.scenario         morning-rush | evening-exodus | mixed
+ * loadtest.duration-seconds length of the run, default 300
+ * loadtest.peak-rate        requests per second at the top of the curve, default 50
+ * loadtest.type-mix         vehicle type weights, default mini:30,compact:50,large:20
+ * loadtest.users            file with one verified user per line: email,password
+ * loadtest.jwt-secret       when set, tokens are minted with the server's JWT_SECRET instead of
+ *                           signing in, only the email column of loadtest.users is used
+ * loadtest.output           report directory, default target/loadtest
+ */
+public class GateSurgeLoadTest {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final String baseUrl = System.getProperty("loadtest.base-url", "http://localhost:8080");
+    private final ArrivalCurve curve = ArrivalCurve.fromName(System.getProperty("loadtest.scenario", "mixed"));
+    private final long durationSeconds = Long.getLong("loadtest.duration-seconds", 300);
+    private final double peakRate = Double.parseDouble(System.getProperty("loadtest.peak-rate", "50"));
+    private final Map<String, Integer> typeMix = parseTypeMix(
+            System.getProperty("loadtest.type-mix", "mini:30,compact:50,large:20"));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EndpointStats parkStats = new EndpointStats("park");
+    private final EndpointStats unparkStats = new EndpointStats("unpark");
+    // Vehicles currently parked by this run, the oldest leaves first
+    private final ConcurrentLinkedDeque<ParkedVehicle> parkedVehicles = new ConcurrentLinkedDeque<>();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong vehicleSequence = new AtomicLong();
+    private final String vehiclePrefix = randomLetters(2);
+    private List<String> tokens;
+
+    private record ParkedVehicle(String ticketId, String token) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        new GateSurgeLoadTest().run();
+    }
+
+    void run() throws Exception {
+        tokens = loadTokens();
+        System.out.println("Running " + curve.getName() + " for " + durationSeconds + "s at peak " + peakRate
+                + " req/s with " + tokens.size() + " users against " + baseUrl);
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        double arrivalCredit = 0;
+        double departureCredit = 0;
+        long lastReport = start;
+        for (long tick = start; tick < end; tick += TICK_NANOS) {
+            // Sleep until the tick is due, a late tick still sends its requests with their scheduled time
+            long wait = tick - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            double progress = (double) (tick - start) / (end - start);
+            double tickSeconds = TICK_NANOS / 1e9;
+            arrivalCredit += peakRate * curve.arrivals(progress) * tickSeconds;
+            departureCredit += peakRate * curve.departures(progress) * tickSeconds;
+            for (; arrivalCredit >= 1; arrivalCredit--) {
+                park(tick);
+            }
+            for (; departureCredit >= 1; departureCredit--) {
+                unpark(tick);
+            }
+            if (tick - lastReport >= TimeUnit.SECONDS.toNanos(10)) {
+                lastReport = tick;
+                System.out.printf("%3.0f%% parked=%d in-flight=%d park errors=%.2f%% unpark errors=%.2f%% "
+                        + "park 429=%.2f%%%n", progress * 100, parkedVehicles.size(), inFlight.get(),
+                        parkStats.getErrorRate() * 100, unparkStats.getErrorRate() * 100,
+                        parkStats.getRateLimitedRate() * 100);
+            }
+        }
+
+        // Let the requests still on the wire finish before reporting
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(100);
+        }
+        writeReports();
+    }
+
+    private void park(long scheduledAt) {
+        String token = tokens.get(ThreadLocalRandom.current().nextInt(tokens.size()));
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(Map.of(
+                    "type", nextVehicleType(),
+                    "vehicleNo", nextVehicleNo(),
+                    "vehicleModel", "Load Test"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/quickpark/api/park"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        send(request, parkStats, scheduledAt, response -> {
+            JsonNode ticket = objectMapper.readTree(response.body());
+            parkedVehicles.addLast(new ParkedVehicle(ticket.path("id").asText(), token));
+        });
+    }
+
+    private void unpark(long scheduledAt) {
+        ParkedVehicle vehicle = parkedVehicles.pollFirst();
+        if (vehicle == null) {
+            // Nothing of ours is parked yet, a departure only makes sense after an arrival
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/quickpark/api/unpark?ticketId="
+                + URLEncoder.encode(vehicle.ticketId(), StandardCharsets.UTF_8)))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + vehicle.token())
+                .DELETE()
+                .build();
+        send(request, unparkStats, scheduledAt, response -> {
+        });
+    }
+
+    private interface ResponseHandler {
+        void onSuccess(HttpResponse<String> response) throws IOException;
+    }
+
+    private void send(HttpRequest request, EndpointStats stats, long scheduledAt, ResponseHandler onSuccess) {
+        inFlight.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    try {
+                        if (failure != null) {
+                            Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                            stats.record(scheduledAt, cause.getClass().getSimpleName(), true);
+                        } else if (response.statusCode() == 429) {
+                            stats.recordRateLimited(scheduledAt);
+                        } else if (response.statusCode() / 100 == 2) {
+                            stats.record(scheduledAt, String.valueOf(response.statusCode()), false);
+                            onSuccess.onSuccess(response);
+                        } else {
+                            stats.record(scheduledAt, String.valueOf(response.statusCode()), true);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Unexpected response from " + request.uri() + ": " + e.getMessage());
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+    }
+
+    private void writeReports() throws IOException {
+        String runName = curve.getName() + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path directory = Path.of(System.getProperty("loadtest.output", "target/loadtest"), runName);
+        Files.createDirectories(directory);
+
+        List<String> summary = new ArrayList<>();
+        summary.add("scenario=" + curve.getName() + " duration=" + durationSeconds + "s peakRate=" + peakRate
+                + " users=" + tokens.size() + " typeMix=" + typeMix + " baseUrl=" + baseUrl);
+        for (EndpointStats stats : List.of(parkStats, unparkStats)) {
+            stats.writeHistogram(directory.resolve(stats.getEndpoint() + ".hgrm"));
+            summary.add(stats.summary());
+        }
+        summary.add("still parked after the run: " + parkedVehicles.size());
+        Files.write(directory.resolve("summary.txt"), summary);
+
+        summary.forEach(System.out::println);
+        System.out.println("Reports written to " + directory.toAbsolutePath());
+    }
+
+    private List<String> loadTokens() throws IOException, InterruptedException {
+        String usersFile = System.getProperty("loadtest.users");
+        if (usersFile == null) {
+            throw new IllegalArgumentException("Set -Dloadtest.users to a file with one email,password per line");
+        }
+        String jwtSecret = System.getProperty("loadtest.jwt-secret");
+        List<String> result = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(usersFile))) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = line.split(",", 2);
+            String email = columns[0].trim();
+            if (jwtSecret != null) {
+                result.add(mintToken(email, jwtSecret));
+            } else if (columns.length == 2) {
+                result.add(signIn(email, columns[1].trim()));
+            } else {
+                throw new IllegalArgumentException("Missing password for " + email + " in " + usersFile);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("No users in " + usersFile);
+        }
+        return result;
+    }
+
+    private String signIn(String email, String password) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/quickpark/api/user/auth/signin"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        objectMapper.writeValueAsString(Map.of("email", email, "password", password))))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 429) {
+            throw new IllegalStateException("Sign in of " + email + " was rate limited (429): run the server with "
+                    + "RATE_LIMIT_ENABLED=false or pass -Dloadtest.jwt-secret to mint the tokens instead");
+        }
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Sign in failed for " + email + ": " + response.statusCode() + " "
+                    + response.body());
+        }
+        return objectMapper.readTree(response.body()).path("token").asText();
+    }
+
+    // Same claims as the server's JWT.generateToken
+    private String mintToken(String email, String secret) {
+        Date now = new Date();
+        return Jwts.builder()
+                .claims(Map.of("role", "USER"))
+                .subject(email)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes()))
+                .compact();
+    }
+
+    private String nextVehicleType() {
+        int total = typeMix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<String, Integer> entry : typeMix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        return "compact";
+    }
+
+    // Valid and unique within the run: random state code, 2 digits, 2 letters, 4 digits
+    private String nextVehicleNo() {
+        long n = vehicleSequence.getAndIncrement();
+        long rest = n / 10000;
+        return String.format("%s%02d%c%c%04d", vehiclePrefix, (rest / 676) % 100,
+                (char) ('A' + rest % 26), (char) ('A' + (rest / 26) % 26), n % 10000);
+    }
+
+    private static Map<String, Integer> parseTypeMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            mix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    private static String randomLetters(int count) {
+        StringBuilder letters = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            letters.append((char) ('A' + ThreadLocalRandom.current().nextInt(26)));
+        }
+        return letters.toString();
+    }
+}
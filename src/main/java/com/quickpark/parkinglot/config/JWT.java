@@ -1,17 +1,35 @@
 package com.quickpark.parkinglot.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/*
+ * Issues and verifies the JWTs.
+ * The signing key and the parser are built once, a token is verified once into its Claims and
+ * the result is kept in a small cache keyed by the SHA-256 digest of the token (the token itself
+ * is never stored). An entry lives until the token expires or jwt.cache.max-ttl-seconds,
+ * whichever comes first, so an expired token is never accepted from the cache.
+ */
 @Component
 public class JWT {
 
@@ -21,8 +39,52 @@ public class JWT {
     @Value("${JWT_EXPIRATION:86400000}") // 24 hours in milliseconds
     private Long expiration;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${jwt.cache.max-ttl-seconds:300}")
+    private long cacheMaxTtlSeconds;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(cacheMaxTtlSeconds);
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String digest, Claims claims, long currentTime) {
+                        Date expiresAt = claims.getExpiration();
+                        if (expiresAt == null) {
+                            return maxTtlNanos;
+                        }
+                        long untilExpiry = TimeUnit.MILLISECONDS
+                                .toNanos(expiresAt.getTime() - System.currentTimeMillis());
+                        return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, Claims claims, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, Claims claims, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
     }
 
     // Generate token for user with role
@@ -46,6 +108,34 @@ public class JWT {
                 .compact();
     }
 
+    /*
+     * Verify the signature and expiry of a token and return its claims.
+     * Throws a JwtException (e.g. ExpiredJwtException, SignatureException) for a token that is not valid.
+     */
+    public Claims verify(String token) {
+        String digest = digest(token);
+        Claims claims = verifiedTokens.getIfPresent(digest);
+        if (claims == null) {
+            claims = parser.parseSignedClaims(token).getPayload();
+            verifiedTokens.put(digest, claims);
+        } else if (claims.getExpiration() != null && claims.getExpiration().before(new Date())) {
+            // Cache expiry is not exact to the millisecond
+            verifiedTokens.invalidate(digest);
+            throw new ExpiredJwtException(null, claims, "JWT expired at " + claims.getExpiration());
+        }
+        return claims;
+    }
+
+    private String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
     // Validate token
     public Boolean validateToken(String token, String email) {
         final String extractedEmail = extractEmail(token);
@@ -74,11 +164,7 @@ public class JWT {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return verify(token);
     }
 
     private Boolean isTokenExpired(String token) {
@@ -1,5 +1,6 @@
 package com.quickpark.parkinglot.config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,45 +32,42 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String authorizationHeader = request.getHeader("Authorization");
 
         String email = null;
+        String role = null;
         String jwt = null;
         boolean isTokenInvalid = false;
 
-        // Extract JWT token from Authorization header
+        // Extract JWT token from Authorization header, verified once (signature and expiry)
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7);
             try {
-                email = jwtUtil.extractEmail(jwt);
+                Claims claims = jwtUtil.verify(jwt);
+                email = claims.getSubject();
+                role = claims.get("role", String.class);
             } catch (Exception e) {
                 logger.error("JWT token extraction failed: " + e.getMessage());
                 isTokenInvalid = true;
             }
         }
 
-        // Validate token and set authentication
+        // Set authentication
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(jwt, email)) {
-                // Extract role from token
-                String role = jwtUtil.extractRole(jwt);
-                List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+            List<SimpleGrantedAuthority> authorities = new ArrayList<>();
 
-                if (role != null && !role.isEmpty()) {
-                    // If user has ADMIN role, grant both USER and ADMIN authorities
-                    if ("ADMIN".equals(role)) {
-                        authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-                        authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
-                    } else {
-                        // Otherwise just grant the USER authority
-                        authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
-                    }
+            if (role != null && !role.isEmpty()) {
+                // If user has ADMIN role, grant both USER and ADMIN authorities
+                if ("ADMIN".equals(role)) {
+                    authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+                    authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+                } else {
+                    // Otherwise just grant the USER authority
+                    authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
                 }
-
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                        email, null, authorities);
-                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-            } else {
-                isTokenInvalid = true;
             }
+
+            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                    email, null, authorities);
+            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
         }
 
         // If token is invalid and it's a protected endpoint, send unauthorized response
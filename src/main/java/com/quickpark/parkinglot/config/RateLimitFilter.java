@@ -0,0 +1,58 @@
+package com.quickpark.parkinglot.config;
+
+import com.quickpark.parkinglot.service.RateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/*
+ * Runs right after JwtAuthenticationFilter, so a refused request costs no body parsing, database
+ * or BCrypt work. Signed in callers are limited by their JWT subject, everyone else by client IP
+ * (behind a proxy set server.forward-headers-strategy=native to get the forwarded address).
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String endpoint = rateLimiter.endpointFor(request.getRequestURI());
+        if (endpoint != null) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String key = authentication != null && authentication.isAuthenticated()
+                    && !(authentication instanceof AnonymousAuthenticationToken)
+                            ? "user:" + authentication.getName()
+                            : "ip:" + request.getRemoteAddr();
+            long retryAfter = rateLimiter.acquire(endpoint, key);
+            if (retryAfter > 0) {
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+                response.setContentType("application/json");
+                response.getWriter().write("{\"error\": \"Too many requests\", \"message\": \"Rate limit of "
+                        + endpoint + " exceeded, retry in " + retryAfter + " seconds\"}");
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
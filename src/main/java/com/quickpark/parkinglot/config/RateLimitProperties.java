@@ -0,0 +1,25 @@
+package com.quickpark.parkinglot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/*
+ * rate-limit.* from application.properties, one budget per endpoint name:
+ * rate-limit.endpoints.park.path=/quickpark/api/park
+ * rate-limit.endpoints.park.capacity=20            requests allowed at once
+ * rate-limit.endpoints.park.refill-per-minute=60   sustained rate
+ * rate-limit.endpoints.park.per-account=false      also limit the email the request is for (signin, otp)
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+public record RateLimitProperties(@DefaultValue("true") boolean enabled, @DefaultValue("100000") long maxKeys,
+        Map<String, Budget> endpoints) {
+
+    public RateLimitProperties {
+        endpoints = endpoints == null ? Map.of() : Map.copyOf(endpoints);
+    }
+
+    public record Budget(String path, int capacity, int refillPerMinute, boolean perAccount) {
+    }
+}
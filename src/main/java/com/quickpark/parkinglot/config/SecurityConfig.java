@@ -1,5 +1,8 @@
 package com.quickpark.parkinglot.config;
 
+import com.quickpark.parkinglot.service.ParkingMetrics;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -12,20 +15,41 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
 
         private final JwtAuthenticationFilter jwtAuthenticationFilter;
         private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+        private final RateLimitFilter rateLimitFilter;
 
         public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
-                        JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint) {
+                        JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint, RateLimitFilter rateLimitFilter) {
                 this.jwtAuthenticationFilter = jwtAuthenticationFilter;
                 this.jwtAuthenticationEntryPoint = jwtAuthenticationEntryPoint;
+                this.rateLimitFilter = rateLimitFilter;
         }
 
+        // BCrypt wrapped with a timer, it is the slowest part of signin and signup
         @Bean
-        public PasswordEncoder passwordEncoder() {
-                return new BCryptPasswordEncoder();
+        public PasswordEncoder passwordEncoder(ParkingMetrics metrics) {
+                PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+                return new PasswordEncoder() {
+                        @Override
+                        public String encode(CharSequence rawPassword) {
+                                return metrics.timePasswordHash("encode", () -> bcrypt.encode(rawPassword));
+                        }
+
+                        @Override
+                        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                                return metrics.timePasswordHash("matches",
+                                                () -> bcrypt.matches(rawPassword, encodedPassword));
+                        }
+
+                        @Override
+                        public boolean upgradeEncoding(String encodedPassword) {
+                                return bcrypt.upgradeEncoding(encodedPassword);
+                        }
+                };
         }
 
         @Bean
@@ -34,6 +58,15 @@ public class SecurityConfig {
                                 .cors(cors -> cors.configure(http)) // Enable CORS
                                 .csrf(csrf -> csrf.disable())
                                 .authorizeHttpRequests(auth -> auth
+                                                // Async dispatches of already authorized requests (status stream)
+                                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
+                                                // Health checks for the load balancer
+                                                .requestMatchers("/actuator/health").permitAll()
+
+                                                // Metrics include occupancy, revenue and rate limit counters
+                                                .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
+
                                                 // Public endpoints - signup, signin, and password reset
                                                 .requestMatchers("/quickpark/api/user/auth/signup",
                                                                 "/quickpark/api/user/auth/signin",
@@ -53,7 +86,9 @@ public class SecurityConfig {
                                                 .authenticationEntryPoint(jwtAuthenticationEntryPoint))
                                 .sessionManagement(session -> session
                                                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                                // Token buckets per JWT subject or client IP (rate-limit.* properties)
+                                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
                 return http.build();
         }
@@ -1,6 +1,8 @@
 package com.quickpark.parkinglot.controller;
 
+import com.quickpark.parkinglot.Exceptions.ValidationException;
 import com.quickpark.parkinglot.service.IAdminService;
+import com.quickpark.parkinglot.service.TicketExportService;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -8,20 +10,28 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.List;
 import com.quickpark.parkinglot.custom.Pair;
+import com.quickpark.parkinglot.request.GateRequest;
+import com.quickpark.parkinglot.request.SpotStatusRequest;
 
 @RestController
 @RequestMapping("/quickpark/admin/api")
 public class AdminController {
 
     private final IAdminService adminService;
+    private final TicketExportService exportService;
 
-    public AdminController(IAdminService adminService) {
+    public AdminController(IAdminService adminService, TicketExportService exportService) {
         this.adminService = adminService;
+        this.exportService = exportService;
     }
 
     /*
@@ -53,6 +63,73 @@ public class AdminController {
         }
     }
 
+    // Activate or deactivate many spots by location, row pattern or range (see SpotStatusRequest)
+    @PutMapping("/update-parking-spots")
+    public ResponseEntity<?> updateParkingSpots(@RequestBody SpotStatusRequest statusRequest) {
+        try {
+            Map<String, Object> response = adminService.updateParkingSpotsStatus(statusRequest);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating parking spots: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Rebuild the live occupancy counters and free spot pools from the database
+     * Only needed after the parking_spots table was changed outside the application
+     */
+    @PostMapping("/reconcile-occupancy")
+    public ResponseEntity<?> reconcileOccupancy() {
+        try {
+            return ResponseEntity.ok(adminService.reconcileOccupancy());
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error reconciling occupancy: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/gates")
+    public ResponseEntity<?> getGates() {
+        try {
+            return ResponseEntity.ok(adminService.getGates());
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching gates: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Add a gate, it starts open
+     * Request body format: {"name": "North", "type": "entry", "guardName": "Ravi", "nearestRow": 1}
+     * An entry gate reserves free spots from the rows nearest to nearestRow for park requests sent with its id
+     */
+    @PostMapping("/add-gate")
+    public ResponseEntity<?> addGate(@RequestBody GateRequest gateRequest) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(adminService.addGate(gateRequest));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error adding gate: " + e.getMessage());
+        }
+    }
+
+    // Open or close a gate, a closed gate's reserved spots go back to the shared pool
+    @PutMapping("/update-gate-status")
+    public ResponseEntity<?> updateGateStatus(@RequestParam Long gateId, @RequestParam boolean open) {
+        try {
+            return ResponseEntity.ok(adminService.updateGateStatus(gateId, open));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating gate status: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/all-parking-spots")
     public ResponseEntity<?> getAllParkingSpots() {
         try {
@@ -104,6 +181,50 @@ public class AdminController {
         }
     }
 
+    /*
+     * Keyset-paginated spot listing, pass nextCursor from the previous page as ?after=
+     * Filters: type (mini/compact/large), section (1, 2, 3...), booked, active
+     */
+    @GetMapping("/spots")
+    public ResponseEntity<?> getSpots(@RequestParam(required = false) String type,
+            @RequestParam(required = false) Integer section, @RequestParam(required = false) Boolean booked,
+            @RequestParam(required = false) Boolean active, @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(adminService.getSpotsPage(type, section, booked, active, after, limit));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching parking spots: " + e.getMessage());
+        }
+    }
+
+    // Occupied spots with their tickets, keyset-paginated by ticket id
+    @GetMapping("/parked-spots")
+    public ResponseEntity<?> getParkedSpots(@RequestParam(required = false) String type,
+            @RequestParam(required = false) Integer section, @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(adminService.getParkedSpotsPage(type, section, after, limit));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching parked spots: " + e.getMessage());
+        }
+    }
+
+    // Total, booked, free and inactive spots per type from one GROUP BY
+    @GetMapping("/spot-counts")
+    public ResponseEntity<?> getSpotCounts(@RequestParam(required = false) Integer section) {
+        try {
+            return ResponseEntity.ok(adminService.getSpotCounts(section));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error counting parking spots: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/revenue")
     public ResponseEntity<?> calculateRevenue(@RequestParam String startDate, @RequestParam String endDate) {
         try {
@@ -115,4 +236,30 @@ public class AdminController {
             throw new RuntimeException("Error calculating revenue: " + e.getMessage());
         }
     }
+
+    /*
+     * Ticket history of an exit time range as a download, streamed row by row
+     * format=csv (default) or format=ndjson for gzip-compressed JSON lines
+     */
+    @GetMapping("/export/tickets")
+    public ResponseEntity<StreamingResponseBody> exportTickets(@RequestParam String startDate,
+            @RequestParam String endDate, @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "csv") String format) {
+        // Parsed before streaming starts so invalid parameters still get a 400
+        TicketExportService.ExportQuery query = exportService.parseQuery(startDate, endDate, type);
+        String fileName = "tickets-" + query.from().toLocalDate() + "-to-" + query.to().toLocalDate();
+        if ("csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + ".csv\"")
+                    .body(out -> exportService.writeCsv(query, out));
+        }
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/gzip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + ".ndjson.gz\"")
+                    .body(out -> exportService.writeNdjsonGzip(query, out));
+        }
+        throw new ValidationException("Invalid export format. Allowed formats are: csv, ndjson.");
+    }
 }
@@ -4,13 +4,21 @@ import com.quickpark.parkinglot.Exceptions.ParkingLotException;
 import com.quickpark.parkinglot.config.JWT;
 import com.quickpark.parkinglot.entities.ParkedTicket;
 import com.quickpark.parkinglot.entities.UnparkedTicket;
+import com.quickpark.parkinglot.request.ParkRequest;
+import com.quickpark.parkinglot.request.ReservationRequest;
 import com.quickpark.parkinglot.service.EmailService;
 import com.quickpark.parkinglot.service.IParkingService;
+import com.quickpark.parkinglot.service.IdempotencyStore;
+import com.quickpark.parkinglot.service.IReservationService;
+import com.quickpark.parkinglot.service.OccupancyBroadcaster;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.Map;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.http.HttpStatus;
 
+import java.security.Principal;
+
 @RestController
 @RequestMapping("/quickpark/api/")
 public class ParkingController {
@@ -18,11 +26,19 @@ public class ParkingController {
     private final IParkingService parkingService;
     private final JWT jwtUtil;
     private final EmailService emailService;
+    private final OccupancyBroadcaster occupancyBroadcaster;
+    private final IReservationService reservationService;
+    private final IdempotencyStore idempotencyStore;
 
-    public ParkingController(IParkingService parkingService, JWT jwtUtil, EmailService emailService) {
+    public ParkingController(IParkingService parkingService, JWT jwtUtil, EmailService emailService,
+            OccupancyBroadcaster occupancyBroadcaster, IReservationService reservationService,
+            IdempotencyStore idempotencyStore) {
+        this.idempotencyStore = idempotencyStore;
         this.parkingService = parkingService;
+        this.reservationService = reservationService;
         this.jwtUtil = jwtUtil;
         this.emailService = emailService;
+        this.occupancyBroadcaster = occupancyBroadcaster;
     }
 
     @GetMapping("/home")
@@ -41,16 +57,110 @@ public class ParkingController {
         }
     }
 
+    /*
+     * Server-Sent Events stream of the same payload as /status
+     * Sends the current occupancy on connect and then an "occupancy" event whenever it changes
+     */
+    @GetMapping(path = "/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStatus() {
+        return occupancyBroadcaster.subscribe();
+    }
+
+    /*
+     * park, unpark and update-ticket take an optional Idempotency-Key header: a retry with the same key
+     * gets the first response back (with Idempotent-Replayed: true) instead of running again
+     */
     @PostMapping(path = "/park", consumes = "application/json")
-    public ResponseEntity<?> ParkVehicle(@RequestBody Map<String, String> requestBody,
+    public ResponseEntity<?> ParkVehicle(@RequestBody ParkRequest parkRequest,
+            @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            Principal caller) {
+        return idempotencyStore.execute(idempotencyKey, caller, "park", String.valueOf(parkRequest),
+                () -> park(parkRequest, authHeader));
+    }
+
+    @DeleteMapping(path = "/unpark")
+    public ResponseEntity<?> UnparkVehicle(@RequestParam String ticketId,
+            @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            Principal caller) {
+        return idempotencyStore.execute(idempotencyKey, caller, "unpark", ticketId,
+                () -> unpark(ticketId, authHeader));
+    }
+
+    @PutMapping(path = "/update-ticket", consumes = "application/json")
+    public ResponseEntity<?> UpdateParkedVehicle(@RequestParam String ticketId, @RequestBody String vehicleNo,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            Principal caller) {
+        return idempotencyStore.execute(idempotencyKey, caller, "update-ticket", ticketId + ":" + vehicleNo,
+                () -> updateTicket(ticketId, vehicleNo));
+    }
+
+    /*
+     * Reserve a spot for a future window
+     * Request body format: {"type": "compact", "vehicleNo": "KA01AB1234",
+     * "startTime": "2025-11-09T14:00:00", "endTime": "2025-11-09T18:00:00"}
+     * Parking the vehicle within the window gives it the reserved spot
+     */
+    @PostMapping(path = "/reservations", consumes = "application/json")
+    public ResponseEntity<?> reserve(@RequestBody ReservationRequest reservationRequest,
+            @RequestHeader("Authorization") String authHeader) {
+        try {
+            String userEmail = extractEmailFromToken(authHeader);
+            return ResponseEntity.status(HttpStatus.CREATED).body(reservationService.reserve(userEmail,
+                    reservationRequest));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error creating reservation: " + e.getMessage());
+        }
+    }
+
+    // Whether any spot of the type is free for the whole window
+    @GetMapping("/reservations/availability")
+    public ResponseEntity<?> checkAvailability(@RequestParam String type, @RequestParam String startTime,
+            @RequestParam String endTime) {
+        try {
+            return ResponseEntity.ok(reservationService.checkAvailability(type, startTime, endTime));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error checking availability: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/reservations")
+    public ResponseEntity<?> getReservations(@RequestHeader("Authorization") String authHeader) {
+        try {
+            String userEmail = extractEmailFromToken(authHeader);
+            return ResponseEntity.ok(reservationService.getReservations(userEmail));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching reservations: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/reservations")
+    public ResponseEntity<?> cancelReservation(@RequestParam Long reservationId,
             @RequestHeader("Authorization") String authHeader) {
+        try {
+            String userEmail = extractEmailFromToken(authHeader);
+            return ResponseEntity.ok(reservationService.cancelReservation(userEmail, reservationId));
+        } catch (RuntimeException e) {
+            throw e; // Let global exception handler handle it
+        } catch (Exception e) {
+            throw new RuntimeException("Error cancelling reservation: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> park(ParkRequest parkRequest, String authHeader) {
         try {
             String userEmail = extractEmailFromToken(authHeader);
             if (userEmail == null || userEmail.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid user token");
             }
-            requestBody.put("email", userEmail);
-            ParkedTicket ticket = parkingService.ParkVehicle(requestBody);
+            ParkedTicket ticket = parkingService.ParkVehicle(userEmail, parkRequest);
             // Send email notification (non-blocking)
             try {
                 emailService.SendParkingTicketEmail(userEmail, ticket);
@@ -66,9 +176,7 @@ public class ParkingController {
         }
     }
 
-    @DeleteMapping(path = "/unpark")
-    public ResponseEntity<?> UnparkVehicle(@RequestParam String ticketId,
-            @RequestHeader("Authorization") String authHeader) {
+    private ResponseEntity<?> unpark(String ticketId, String authHeader) {
         try {
             String userEmail = extractEmailFromToken(authHeader);
             if (userEmail == null || userEmail.isEmpty()) {
@@ -91,8 +199,7 @@ public class ParkingController {
         }
     }
 
-    @PutMapping(path = "/update-ticket", consumes = "application/json")
-    public ResponseEntity<?> UpdateParkedVehicle(@RequestParam String ticketId, @RequestBody String vehicleNo) {
+    private ResponseEntity<?> updateTicket(String ticketId, String vehicleNo) {
         try {
             ParkedTicket updatedTicket = parkingService.UpdateParkedVehicle(ticketId, vehicleNo);
             return ResponseEntity.ok(updatedTicket);
@@ -13,7 +13,10 @@ import org.springframework.http.ResponseEntity;
 import com.quickpark.parkinglot.config.JWT;
 import com.quickpark.parkinglot.service.EmailService;
 import com.quickpark.parkinglot.service.IUserService;
+import com.quickpark.parkinglot.service.RateLimiter;
 import com.quickpark.parkinglot.entities.User;
+import com.quickpark.parkinglot.request.SigninRequest;
+import com.quickpark.parkinglot.request.SignupRequest;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
@@ -24,15 +27,18 @@ public class UserController {
     private final IUserService userService;
     private final JWT jwtUtil;
     private final EmailService emailService;
+    private final RateLimiter rateLimiter;
 
-    public UserController(IUserService userService, JWT jwtUtil, EmailService emailService) {
+    public UserController(IUserService userService, JWT jwtUtil, EmailService emailService,
+            RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
         this.userService = userService;
         this.jwtUtil = jwtUtil;
         this.emailService = emailService;
     }
 
     @PostMapping("/auth/signup")
-    public ResponseEntity<?> signup(@RequestBody Map<String, String> signupRequest) {
+    public ResponseEntity<?> signup(@RequestBody SignupRequest signupRequest) {
         try {
             // Register user - no JWT token until email is verified
             Map<String, String> result = userService.registerUser(signupRequest);
@@ -51,13 +57,15 @@ public class UserController {
     }
 
     @PostMapping("/auth/signin")
-    public ResponseEntity<?> signin(@RequestBody Map<String, String> loginRequest) {
+    public ResponseEntity<?> signin(@RequestBody SigninRequest signinRequest) {
         try {
-            String email = loginRequest.get("email");
-            String contactNo = loginRequest.get("contactNo");
-            String password = loginRequest.get("password");
+            // Per account on top of the per IP budget, slows down password guessing on one account
+            if (signinRequest != null) {
+                rateLimiter.checkAccount("signin", signinRequest.email() != null ? signinRequest.email()
+                        : signinRequest.contactNo());
+            }
             // Validate user and get JWT token
-            Map<String, String> result = userService.validateUser(email, contactNo, password);
+            Map<String, String> result = userService.validateUser(signinRequest);
             // Prepare response
             Map<String, Object> response = new HashMap<>();
             response.put("message", "User signed in successfully");
@@ -129,6 +137,7 @@ public class UserController {
     @PostMapping("/auth/otp/generate")
     public ResponseEntity<?> generateOTP(@RequestBody String email) {
         try {
+            rateLimiter.checkAccount("otp", email);
             boolean isOTPSent = userService.generateAndSendOTP(email);
             if (isOTPSent) {
                 return ResponseEntity.ok("OTP sent successfully to " + email);
@@ -1,7 +1,14 @@
 package com.quickpark.parkinglot.entities;
 
+import jakarta.persistence.Entity;
+
+@Entity
 public class CompactParkingSpot extends ParkingSpot{
 
+    protected CompactParkingSpot() {
+        super();
+    }
+
     public CompactParkingSpot(String location) {
         super("compact",35,location);
     }
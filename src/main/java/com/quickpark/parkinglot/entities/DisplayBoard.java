@@ -1,87 +1,128 @@
 package com.quickpark.parkinglot.entities;
 
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Live occupancy counters shown on the lobby screens and the status endpoint.
+ * The counters are LongAdders so concurrent parks and unparks update them without contention.
+ * They are maintained incrementally on every booking change and rebuilt from the database
+ * only at startup or when an admin asks for a reconcile.
+ * free counts spots that can be booked (not booked and active), booked counts every booked spot.
+ * changes counts every update so pushers can tell cheaply whether anything moved since they last looked.
+ */
 public class DisplayBoard {
-    private int freeMiniParkingSpots;
-    private int freeCompactParkingSpots;
-    private int freeLargeParkingSpots;
-    private int bookedMiniParkingSpots;
-    private int bookedCompactParkingSpots;
-    private int bookedLargeParkingSpots;
-    private static DisplayBoard displayBoard;
+    private final LongAdder freeMiniParkingSpots = new LongAdder();
+    private final LongAdder freeCompactParkingSpots = new LongAdder();
+    private final LongAdder freeLargeParkingSpots = new LongAdder();
+    private final LongAdder bookedMiniParkingSpots = new LongAdder();
+    private final LongAdder bookedCompactParkingSpots = new LongAdder();
+    private final LongAdder bookedLargeParkingSpots = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private static final DisplayBoard displayBoard = new DisplayBoard();
 
     private DisplayBoard() {
-        this.freeMiniParkingSpots = 0;
-        this.freeCompactParkingSpots = 0;
-        this.freeLargeParkingSpots = 0;
-        this.bookedMiniParkingSpots = 0;
-        this.bookedCompactParkingSpots = 0;
-        this.bookedLargeParkingSpots = 0;
     }
 
     public static DisplayBoard getInstance() {
-        if(DisplayBoard.displayBoard == null) {
-            DisplayBoard.displayBoard = new DisplayBoard();
-        }
         return DisplayBoard.displayBoard;
     }
 
     public int getFreeMiniParkingSpots() {
-        return freeMiniParkingSpots;
+        return freeMiniParkingSpots.intValue();
     }
 
-    public void setFreeMiniParkingSpots(int freeMini) {
-        this.freeMiniParkingSpots = freeMini;
+    public int getFreeCompactParkingSpots() {
+        return freeCompactParkingSpots.intValue();
     }
 
-    public int getFreeCompactParkingSpots() {
-        return freeCompactParkingSpots;
+    public int getFreeLargeParkingSpots() {
+        return freeLargeParkingSpots.intValue();
     }
 
-    public void setFreeCompactParkingSpots(int freeCompactParkingSpots) {
-        this.freeCompactParkingSpots = freeCompactParkingSpots;
+    public int getBookedMiniParkingSpots() {
+        return bookedMiniParkingSpots.intValue();
     }
 
-    public int getFreeLargeParkingSpots() {
-        return freeLargeParkingSpots;
+    public int getBookedCompactParkingSpots() {
+        return bookedCompactParkingSpots.intValue();
     }
 
-    public void setFreeLargeParkingSpots(int freeLargeParkingSpots) {
-        this.freeLargeParkingSpots = freeLargeParkingSpots;
+    public int getBookedLargeParkingSpots() {
+        return bookedLargeParkingSpots.intValue();
     }
 
-    public int getBookedMiniParkingSpots() {
-        return bookedMiniParkingSpots;
+    public long getChangeCount() {
+        return changes.sum();
     }
 
-    public void setBookedMiniParkingSpots(int bookedMiniParkingSpots) {
-        this.bookedMiniParkingSpots = bookedMiniParkingSpots;
+    // Replace the counters of a type with counts read from the database
+    public void reset(String type, long free, long booked) {
+        LongAdder freeCounter = free(type);
+        LongAdder bookedCounter = booked(type);
+        if (freeCounter == null || bookedCounter == null) {
+            return;
+        }
+        freeCounter.reset();
+        freeCounter.add(free);
+        bookedCounter.reset();
+        bookedCounter.add(booked);
+        changes.increment();
     }
 
-    public int getBookedCompactParkingSpots() {
-        return bookedCompactParkingSpots;
+    public void spotBooked(String type) {
+        add(free(type), -1);
+        add(booked(type), 1);
     }
 
-    public void setBookedCompactParkingSpots(int bookedCompactParkingSpots) {
-        this.bookedCompactParkingSpots = bookedCompactParkingSpots;
+    // A spot that is deactivated while booked does not become free when the vehicle leaves
+    public void spotFreed(String type, boolean active) {
+        add(booked(type), -1);
+        if (active) {
+            add(free(type), 1);
+        }
     }
 
-    public int getBookedLargeParkingSpots() {
-        return bookedLargeParkingSpots;
+    public void spotsAdded(String type, int count) {
+        add(free(type), count);
     }
 
-    public void setBookedLargeParkingSpots(int bookedLargeParkingSpots) {
-        this.bookedLargeParkingSpots = bookedLargeParkingSpots;
+    // Activation only changes what can be booked, booked spots stay booked
+    public void activationChanged(String type, boolean active, boolean booked) {
+        if (!booked) {
+            add(free(type), active ? 1 : -1);
+        }
     }
 
-    public void changeFreeParkingSpot(ParkingSpot parkingSpot){
-        if(parkingSpot.getType().equals("large")) {
-            this.freeLargeParkingSpots += parkingSpot.isBooked() ? -1 : 1;
+    private void add(LongAdder counter, long delta) {
+        if (counter != null) {
+            counter.add(delta);
+            changes.increment();
         }
-        else if(parkingSpot.getType().equals("mini")) {
-            this.freeMiniParkingSpots += parkingSpot.isBooked() ? -1 : 1;;
+    }
+
+    private LongAdder free(String type) {
+        switch (type) {
+            case "mini":
+                return freeMiniParkingSpots;
+            case "compact":
+                return freeCompactParkingSpots;
+            case "large":
+                return freeLargeParkingSpots;
+            default:
+                return null;
         }
-        else if(parkingSpot.getType().equals("compact")) {
-            this.freeCompactParkingSpots += parkingSpot.isBooked() ? -1 : 1;;
+    }
+
+    private LongAdder booked(String type) {
+        switch (type) {
+            case "mini":
+                return bookedMiniParkingSpots;
+            case "compact":
+                return bookedCompactParkingSpots;
+            case "large":
+                return bookedLargeParkingSpots;
+            default:
+                return null;
         }
     }
 }
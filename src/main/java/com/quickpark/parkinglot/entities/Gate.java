@@ -1,5 +1,6 @@
 package com.quickpark.parkinglot.entities;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -16,6 +17,12 @@ public class Gate {
     private String type;
     private String guardName;
     private boolean status; // true for open, false for closed
+    // Row of the parking sections closest to this gate, entry gates reserve the free spots around it
+    @Column(name = "nearest_row")
+    private Integer nearestRow;
+
+    protected Gate() {
+    }
 
     public Gate(Long id, String name, String type, String guardName, boolean status) {
         this.id = id;
@@ -65,14 +72,23 @@ public class Gate {
         this.guardName = guardName;
     }
 
-    public boolean setStatus(boolean status) {
-        return this.status;
+    public void setStatus(boolean status) {
+        this.status = status;
     }
 
     public boolean getStatus() {
         return status;
     }
 
+    // Gates created before the column existed count as next to row 1
+    public int getNearestRow() {
+        return nearestRow == null ? 1 : nearestRow;
+    }
+
+    public void setNearestRow(Integer nearestRow) {
+        this.nearestRow = nearestRow;
+    }
+
     @Override
     public String toString() {
         return "Gate{" +
@@ -80,6 +96,7 @@ public class Gate {
                 ", name='" + name + '\'' +
                 ", type='" + type + '\'' +
                 ", guardName='" + guardName + '\'' +
+                ", nearestRow=" + nearestRow +
                 '}';
     }
 }
@@ -0,0 +1,14 @@
+package com.quickpark.parkinglot.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+@Entity
+@Table(name = "revenue_hourly", uniqueConstraints = @UniqueConstraint(name = "uk_revenue_hourly_bucket", columnNames = {
+        "bucket_start", "vehicle_type" }))
+public class HourlyRevenue extends RevenueBucket {
+
+    protected HourlyRevenue() {
+    }
+}
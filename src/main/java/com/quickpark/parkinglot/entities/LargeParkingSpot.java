@@ -1,7 +1,14 @@
 package com.quickpark.parkinglot.entities;
 
+import jakarta.persistence.Entity;
+
+@Entity
 public class LargeParkingSpot extends ParkingSpot{
 
+    protected LargeParkingSpot() {
+        super();
+    }
+
     public LargeParkingSpot(String location) {
         super("large",50,location);
     }
@@ -1,7 +1,14 @@
 package com.quickpark.parkinglot.entities;
 
+import jakarta.persistence.Entity;
+
+@Entity
 public class MiniParkingSpot extends ParkingSpot{
 
+    protected MiniParkingSpot() {
+        super();
+    }
+
     public MiniParkingSpot(String location) {
         super("mini",20,location);
     }
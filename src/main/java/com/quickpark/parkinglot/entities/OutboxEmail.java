@@ -0,0 +1,129 @@
+package com.quickpark.parkinglot.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/*
+ * An email waiting in the outbox.
+ * EmailService only inserts rows here, the EmailOutboxDispatcher sends them in batches
+ * and retries failures with backoff until email.outbox.max-attempts is reached.
+ * status is PENDING until sent (SENT) or given up on (FAILED), and SENDING while a dispatcher holds the
+ * row; nextAttemptAt is then the end of that claim.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = @Index(name = "idx_email_outbox_status_next", columnList = "status, nextAttemptAt"))
+public class OutboxEmail {
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private String toAddress;
+    @Column(nullable = false, length = 500)
+    private String subject;
+    // text (64 KB), an unsized @Lob would be a 255 byte tinytext on MySQL
+    @Column(nullable = false, columnDefinition = "text")
+    private String body;
+    private boolean html; // false for plain text bodies
+    @Column(nullable = false, length = 10)
+    private String status;
+    private int attempts; // failed send attempts so far
+    private LocalDateTime nextAttemptAt; // not sent before this time (backoff)
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+    @Column(length = 1000)
+    private String lastError;
+
+    protected OutboxEmail() {
+    }
+
+    public OutboxEmail(String toAddress, String subject, String body, boolean html) {
+        this.toAddress = toAddress;
+        this.subject = subject;
+        this.body = body;
+        this.html = html;
+        this.status = PENDING;
+        this.attempts = 0;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getToAddress() {
+        return toAddress;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    // Claimed by a dispatcher until the given time, another one may take it over after that
+    public void markSending(LocalDateTime claimedUntil) {
+        this.status = SENDING;
+        this.nextAttemptAt = claimedUntil;
+    }
+
+    public void markSent(LocalDateTime now) {
+        this.status = SENT;
+        this.sentAt = now;
+        this.lastError = null;
+    }
+
+    // Schedule the next attempt, or give up for good when nextAttemptAt is null
+    public void markFailed(String error, LocalDateTime nextAttemptAt) {
+        this.attempts++;
+        this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (nextAttemptAt == null) {
+            this.status = FAILED;
+        } else {
+            this.status = PENDING;
+            this.nextAttemptAt = nextAttemptAt;
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package com.quickpark.parkinglot.entities;
 
 import java.time.LocalDateTime;
+
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
+// Vehicles parked right now, at most one row per spot so the table stays as small as the lot
 @Entity
+@Table(name = "parked_tickets", uniqueConstraints = @UniqueConstraint(name = "uk_parked_tickets_vehicle_no", columnNames = "vehicle_no"),
+        indexes = @Index(name = "idx_parked_tickets_email", columnList = "email"))
 public class ParkedTicket extends Ticket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
 
     public ParkedTicket() {
         super();
@@ -13,6 +26,22 @@ public class ParkedTicket extends Ticket {
     public ParkedTicket(Long id, String firstName, String lastName, String email,
             String ownerContact, LocalDateTime entryTime, String vehicleNo, String vehicleModel,
             ParkingSpot parkingSpot) {
-        super(id, firstName, lastName, email, ownerContact, entryTime, vehicleNo, vehicleModel, parkingSpot);
+        super(firstName, lastName, email, ownerContact, entryTime, vehicleNo, vehicleModel, parkingSpot);
+        this.id = id;
+    }
+
+    @Override
+    public String getId() {
+        if (id == null) {
+            return null;
+        }
+        return String.valueOf(id);
+    }
+
+    @Override
+    public void setId(String id) {
+        if (id != null && !id.isEmpty()) {
+            this.id = Long.parseLong(id);
+        }
     }
 }
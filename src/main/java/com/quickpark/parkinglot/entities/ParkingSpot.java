@@ -7,13 +7,17 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "parking_spots")
+// Indexes are created by the Flyway migrations (db/migration), declared here to keep the mapping complete
+@Table(name = "parking_spots", indexes = {
+        @Index(name = "idx_parking_spots_type_booked_active", columnList = "type, isBooked, isActive"),
+        @Index(name = "idx_parking_spots_type_location", columnList = "type, location") })
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 public abstract class ParkingSpot {
     @Id
@@ -53,6 +57,9 @@ public abstract class ParkingSpot {
     private LocalDateTime updatedAt; // timestamp when the spot was last updated either booking status or activation
                                      // status
 
+    protected ParkingSpot() {
+    }
+
     public ParkingSpot(String type, int cost, String location) {
         this.type = type;
         this.cost = cost;
@@ -0,0 +1,112 @@
+package com.quickpark.parkinglot.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.ForeignKey;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+/*
+ * A parking spot booked ahead for a vehicle from startTime to endTime.
+ * status is ACTIVE until the vehicle parks (FULFILLED), the user cancels it (CANCELLED)
+ * or it does not show up in time (EXPIRED). The spot calendars in memory are rebuilt from
+ * the ACTIVE and FULFILLED rows that have not ended yet.
+ */
+@Entity
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_status_start", columnList = "status, startTime"),
+        @Index(name = "idx_reservations_status_end", columnList = "status, endTime"),
+        @Index(name = "idx_reservations_vehicle_no_status", columnList = "vehicleNo, status"),
+        @Index(name = "idx_reservations_email", columnList = "email") })
+public class Reservation {
+    public static final String ACTIVE = "ACTIVE";
+    public static final String FULFILLED = "FULFILLED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String EXPIRED = "EXPIRED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private String email;
+    @Column(nullable = false, length = 50)
+    private String vehicleNo;
+    @ManyToOne
+    @JoinColumn(name = "parking_spot_id", nullable = false, foreignKey = @ForeignKey(name = "fk_reservations_parking_spot"))
+    private ParkingSpot parkingSpot;
+    @Column(nullable = false)
+    private LocalDateTime startTime;
+    @Column(nullable = false)
+    private LocalDateTime endTime;
+    @Column(nullable = false, length = 10)
+    private String status;
+    private LocalDateTime createdAt;
+
+    protected Reservation() {
+    }
+
+    public Reservation(String email, String vehicleNo, ParkingSpot parkingSpot, LocalDateTime startTime,
+            LocalDateTime endTime) {
+        this.email = email;
+        this.vehicleNo = vehicleNo;
+        this.parkingSpot = parkingSpot;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.status = ACTIVE;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getVehicleNo() {
+        return vehicleNo;
+    }
+
+    public ParkingSpot getParkingSpot() {
+        return parkingSpot;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Reservation{" +
+                "id=" + id +
+                ", vehicleNo='" + vehicleNo + '\'' +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
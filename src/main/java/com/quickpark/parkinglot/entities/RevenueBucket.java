@@ -0,0 +1,50 @@
+package com.quickpark.parkinglot.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+
+/*
+ * Revenue of one vehicle type over one time bucket (an hour or a day, see the subclasses)
+ * bucketStart is the start of the bucket, the bucket covers [bucketStart, next bucketStart)
+ * Rows are only written through the upserts in the rollup repositories, never through save()
+ */
+@MappedSuperclass
+public abstract class RevenueBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+    @Column(nullable = false, length = 20)
+    private String vehicleType;
+    private long revenue; // sum of totalCost of the tickets that exited in the bucket
+    private long tickets; // number of those tickets
+
+    protected RevenueBucket() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+
+    public long getRevenue() {
+        return revenue;
+    }
+
+    public long getTickets() {
+        return tickets;
+    }
+}
@@ -0,0 +1,68 @@
+package com.quickpark.parkinglot.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/*
+ * Layout cursor of a parking section: the row and column of the last spot provisioned in it.
+ * New spots continue from here (S{section}-R{lastRow}-C{lastCol + 1}, wrapping to the next row),
+ * so provisioning never reads the existing spots. The row is locked while spots are added.
+ */
+@Entity
+@Table(name = "section_layouts")
+public class SectionLayout {
+    @Id
+    private Integer section;
+    @Column(nullable = false, length = 20)
+    private String type;
+    private int lastRow; // 1 with lastCol 0 for an empty section
+    private int lastCol;
+    private LocalDateTime updatedAt;
+
+    protected SectionLayout() {
+    }
+
+    public SectionLayout(int section, String type, int lastRow, int lastCol) {
+        this.section = section;
+        this.type = type;
+        this.lastRow = lastRow;
+        this.lastCol = lastCol;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public Integer getSection() {
+        return section;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public int getLastCol() {
+        return lastCol;
+    }
+
+    public void moveTo(int lastRow, int lastCol) {
+        this.lastRow = lastRow;
+        this.lastCol = lastCol;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    @Override
+    public String toString() {
+        return "SectionLayout{" +
+                "section=" + section +
+                ", type='" + type + '\'' +
+                ", lastRow=" + lastRow +
+                ", lastCol=" + lastCol +
+                '}';
+    }
+}
@@ -3,29 +3,22 @@ package com.quickpark.parkinglot.entities;
 import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
-import jakarta.persistence.Id;
-import jakarta.persistence.Inheritance;
-import jakarta.persistence.InheritanceType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
-import jakarta.persistence.Table;
+import jakarta.persistence.MappedSuperclass;
 
-@Entity
-@Table(name = "tickets")
-@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+/*
+ * Columns shared by active tickets (parked_tickets) and the ticket history (ticket_history).
+ * Each subclass is its own table with its own id mapping, a ticket keeps its id when it moves to the history.
+ */
+@MappedSuperclass
 public abstract class Ticket {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
     private String firstName;
     private String lastName;
     private String email;
     private String ownerContact;
     private LocalDateTime entryTime;
-    @Column(unique = true, nullable = false, length = 50)
+    @Column(nullable = false, length = 50)
     private String vehicleNo;
     private String vehicleModel;
     @ManyToOne
@@ -35,9 +28,8 @@ public abstract class Ticket {
     public Ticket() {
     }
 
-    public Ticket(Long id, String firstName, String lastName, String email, String ownerContact,
+    protected Ticket(String firstName, String lastName, String email, String ownerContact,
             LocalDateTime entryTime, String vehicleNo, String vehicleModel, ParkingSpot parkingSpot) {
-        this.id = id;
         this.firstName = firstName;
         this.lastName = lastName;
         this.email = email;
@@ -48,18 +40,9 @@ public abstract class Ticket {
         this.parkingSpot = parkingSpot;
     }
 
-    public String getId() {
-        if (id == null) {
-            return null;
-        }
-        return String.valueOf(id);
-    }
+    public abstract String getId();
 
-    public void setId(String id) {
-        if (id != null && !id.isEmpty()) {
-            this.id = Long.parseLong(id);
-        }
-    }
+    public abstract void setId(String id);
 
     public String getFirstName() {
         return firstName;
@@ -128,7 +111,7 @@ public abstract class Ticket {
     @Override
     public String toString() {
         return "Ticket{" +
-                "id='" + id + '\'' +
+                "id='" + getId() + '\'' +
                 ", firstName='" + firstName + '\'' +
                 ", lastName='" + lastName + '\'' +
                 ", email='" + email + '\'' +
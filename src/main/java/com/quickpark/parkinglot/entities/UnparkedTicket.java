@@ -2,10 +2,31 @@ package com.quickpark.parkinglot.entities;
 
 import java.time.LocalDateTime;
 
+import jakarta.persistence.AssociationOverride;
+import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
+import jakarta.persistence.ForeignKey;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
 
+/*
+ * Ticket history, one row per finished visit, the id is the one the ticket had while parked.
+ * On MySQL the table is partitioned by exit month (TicketTableMigration), which needs every unique key
+ * to include exit_time and allows no foreign keys, hence no constraint on parking_spot_id.
+ */
 @Entity
+@Table(name = "ticket_history", indexes = {
+        @Index(name = "idx_ticket_history_exit_time_cost", columnList = "exitTime, totalCost"),
+        @Index(name = "idx_ticket_history_email", columnList = "email") })
+@AssociationOverride(name = "parkingSpot", joinColumns = @JoinColumn(name = "parking_spot_id"),
+        foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
 public class UnparkedTicket extends Ticket {
+    @Id
+    private Long id;
+    @Column(nullable = false)
     private LocalDateTime exitTime;
     private long totalDuration;
     private long totalCost;
@@ -18,12 +39,28 @@ public class UnparkedTicket extends Ticket {
             String ownerContact, LocalDateTime entryTime, LocalDateTime exitTime,
             long totalDuration, long totalCost, String vehicleNo, String vehicleModel,
             ParkingSpot parkingSpot) {
-        super(id, firstName, lastName, email, ownerContact, entryTime, vehicleNo, vehicleModel, parkingSpot);
+        super(firstName, lastName, email, ownerContact, entryTime, vehicleNo, vehicleModel, parkingSpot);
+        this.id = id;
         this.exitTime = exitTime;
         this.totalDuration = totalDuration;
         this.totalCost = totalCost;
     }
 
+    @Override
+    public String getId() {
+        if (id == null) {
+            return null;
+        }
+        return String.valueOf(id);
+    }
+
+    @Override
+    public void setId(String id) {
+        if (id != null && !id.isEmpty()) {
+            this.id = Long.parseLong(id);
+        }
+    }
+
     public LocalDateTime getExitTime() {
         return exitTime;
     }
@@ -5,10 +5,12 @@ import java.time.LocalDateTime;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_email_verification_token",
+        columnList = "emailVerificationToken"))
 public class User {
     private String firstName;
     private String lastName;
@@ -45,6 +47,23 @@ public class User {
         this.isEmailVerified = false;
     }
 
+    // Detached copy, used by the user cache so callers can't modify the cached instance
+    public User(User other) {
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.email = other.email;
+        this.contactNo = other.contactNo;
+        this.password = other.password;
+        this.address = other.address;
+        this.isEmailVerified = other.isEmailVerified;
+        this.emailVerificationToken = other.emailVerificationToken;
+        this.tokenExpiresAt = other.tokenExpiresAt;
+        this.role = other.role;
+        this.createdAt = other.createdAt;
+        this.otp = other.otp;
+        this.expiresIn = other.expiresIn;
+    }
+
     public String getFirstName() {
         return firstName;
     }
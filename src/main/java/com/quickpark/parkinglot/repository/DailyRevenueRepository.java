@@ -0,0 +1,28 @@
+package com.quickpark.parkinglot.repository;
+
+import com.quickpark.parkinglot.entities.DailyRevenue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface DailyRevenueRepository extends JpaRepository<DailyRevenue, Long> {
+
+    // Adds to the bucket, creating it on first use, in one statement so concurrent unparks can't lose updates
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO revenue_daily (bucket_start, vehicle_type, revenue, tickets) "
+            + "VALUES (:bucketStart, :vehicleType, :revenue, :tickets) "
+            + "ON DUPLICATE KEY UPDATE revenue = revenue + :revenue, tickets = tickets + :tickets", nativeQuery = true)
+    int add(@Param("bucketStart") LocalDateTime bucketStart, @Param("vehicleType") String vehicleType,
+            @Param("revenue") long revenue, @Param("tickets") long tickets);
+
+    // Revenue of the buckets starting in [from, to)
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailyRevenue r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    long sumRevenue(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
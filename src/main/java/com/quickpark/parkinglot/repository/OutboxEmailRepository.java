@@ -0,0 +1,38 @@
+package com.quickpark.parkinglot.repository;
+
+import com.quickpark.parkinglot.entities.OutboxEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    /*
+     * Lock up to limit due PENDING messages, oldest first, that no other dispatcher has locked.
+     * SKIP LOCKED makes concurrent dispatchers step over each other's rows, so every instance claims
+     * a different batch. Must run inside a transaction.
+     */
+    @Query(value = "SELECT * FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEmail> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Claims that ran out without an outcome (the dispatcher died mid-send) go back to PENDING
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEmail e SET e.status = 'PENDING' WHERE e.status = 'SENDING' AND e.nextAttemptAt <= :now")
+    int releaseExpiredClaims(@Param("now") LocalDateTime now);
+
+    long countByStatus(String status);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEmail e WHERE e.status = 'SENT' AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -1,9 +1,15 @@
 package com.quickpark.parkinglot.repository;
 
 import com.quickpark.parkinglot.entities.ParkedTicket;
+import com.quickpark.parkinglot.response.ParkedSpotSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.lang.NonNull;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -25,4 +31,31 @@ public interface ParkedTicketRepository extends JpaRepository<ParkedTicket, Long
     ParkedTicket findByParkingSpotLocation(String location);
 
     void deleteByVehicleNo(String vehicleNo);
+
+    /*
+     * Unpark in two statements, run in the caller's transaction: copy the ticket into ticket_history with
+     * its exit data, then delete it. Both return 0 when the ticket is not (or no longer) parked.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ticket_history (id, first_name, last_name, email, owner_contact, entry_time, "
+            + "vehicle_no, vehicle_model, parking_spot_id, exit_time, total_duration, total_cost) "
+            + "SELECT id, first_name, last_name, email, owner_contact, entry_time, vehicle_no, vehicle_model, "
+            + "parking_spot_id, :exitTime, :totalDuration, :totalCost FROM parked_tickets WHERE id = :id",
+            nativeQuery = true)
+    int copyToHistory(@Param("id") Long id, @Param("exitTime") LocalDateTime exitTime,
+            @Param("totalDuration") long totalDuration, @Param("totalCost") long totalCost);
+
+    @Modifying
+    @Query("DELETE FROM ParkedTicket t WHERE t.id = :id")
+    int deleteTicket(@Param("id") Long id);
+
+    // Keyset page of parked tickets after the given ticket id with their spot, null filters match everything
+    @Query("SELECT new com.quickpark.parkinglot.response.ParkedSpotSummary(t.id, s.location, s.type, t.vehicleNo, "
+            + "t.vehicleModel, t.firstName, t.lastName, t.email, t.ownerContact, t.entryTime) "
+            + "FROM ParkedTicket t JOIN t.parkingSpot s WHERE t.id > :after "
+            + "AND (:type IS NULL OR s.type = :type) "
+            + "AND (:locationPrefix IS NULL OR s.location LIKE :locationPrefix) "
+            + "ORDER BY t.id")
+    List<ParkedSpotSummary> findParkedSpotPage(@Param("after") long after, @Param("type") String type,
+            @Param("locationPrefix") String locationPrefix, Pageable limit);
 }
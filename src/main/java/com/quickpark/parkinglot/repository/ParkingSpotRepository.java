@@ -1,9 +1,17 @@
 package com.quickpark.parkinglot.repository;
 
 import com.quickpark.parkinglot.entities.ParkingSpot;
+import com.quickpark.parkinglot.response.SpotSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,8 +29,8 @@ public interface ParkingSpotRepository extends JpaRepository<ParkingSpot, Long>
 
     List<ParkingSpot> findByTypeAndIsBookedAndIsActive(String type, boolean isBooked, boolean isActive);
 
-    // Find first available spot by type
-    Optional<ParkingSpot> findFirstByTypeAndIsBooked(String type, boolean isBooked);
+    // Find first available spot by type, not one of the given ids (spots held for reservations)
+    Optional<ParkingSpot> findFirstByTypeAndIsBookedAndIdNotIn(String type, boolean isBooked, Collection<Long> ids);
 
     // Find by location
     ParkingSpot findByLocation(String location);
@@ -36,6 +44,74 @@ public interface ParkingSpotRepository extends JpaRepository<ParkingSpot, Long>
     // Count spots by type and booking status
     long countByTypeAndIsBooked(String type, boolean isBooked);
 
+    long countByType(String type);
+
     // Count all available (unbooked) spots
     long countByIsBooked(boolean isBooked);
+
+    // Spot counts per type, booking status and active status in one pass: [type, isBooked, isActive, count]
+    @Query("SELECT p.type, p.isBooked, p.isActive, COUNT(p) FROM ParkingSpot p GROUP BY p.type, p.isBooked, p.isActive")
+    List<Object[]> countByTypeAndBookingAndActiveStatus();
+
+    // Same counts for the spots whose location starts with the prefix (a section, e.g. "S2-%")
+    @Query("SELECT p.type, p.isBooked, p.isActive, COUNT(p) FROM ParkingSpot p WHERE p.location LIKE :locationPrefix "
+            + "GROUP BY p.type, p.isBooked, p.isActive")
+    List<Object[]> countByTypeAndBookingAndActiveStatusAndLocationLike(@Param("locationPrefix") String locationPrefix);
+
+    /*
+     * Keyset page of spots after the given id, null filters match everything
+     * Walks the primary key, so page N costs the same as page 1
+     */
+    @Query("SELECT new com.quickpark.parkinglot.response.SpotSummary(p.id, p.location, p.type, p.cost, p.isBooked, p.isActive) "
+            + "FROM ParkingSpot p WHERE p.id > :after "
+            + "AND (:type IS NULL OR p.type = :type) "
+            + "AND (:locationPrefix IS NULL OR p.location LIKE :locationPrefix) "
+            + "AND (:booked IS NULL OR p.isBooked = :booked) "
+            + "AND (:active IS NULL OR p.isActive = :active) "
+            + "ORDER BY p.id")
+    List<SpotSummary> findSpotPage(@Param("after") long after, @Param("type") String type,
+            @Param("locationPrefix") String locationPrefix, @Param("booked") Boolean booked,
+            @Param("active") Boolean active, Pageable limit);
+
+    // Spots of a type that can be handed out right now: [id, location, cost, version, createdAt]
+    @Query("SELECT p.id, p.location, p.cost, p.version, p.createdAt FROM ParkingSpot p "
+            + "WHERE p.type = :type AND p.isBooked = false AND p.isActive = true ORDER BY p.id")
+    List<Object[]> findFreeSpots(@Param("type") String type);
+
+    // Spots that can take reservations: [id, type]
+    @Query("SELECT p.id, p.type FROM ParkingSpot p WHERE p.isActive = true")
+    List<Object[]> findActiveSpots();
+
+    // Lock the spot's row until the transaction ends, one reservation of a spot is stored at a time
+    @Query(value = "SELECT * FROM parking_spots WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<ParkingSpot> lockById(@Param("id") Long id);
+
+    /*
+     * Lock the first free, active spot of a type that no other transaction has locked.
+     * SKIP LOCKED makes concurrent callers step over each other's rows instead of waiting,
+     * so every gate gets a different spot in a single statement. Must run inside a transaction.
+     * held are the spots kept for reservations, it must not be empty.
+     */
+    @Query(value = "SELECT * FROM parking_spots WHERE type = :type AND is_booked = false AND is_active = true "
+            + "AND id NOT IN (:held) ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<ParkingSpot> lockFirstFreeSpot(@Param("type") String type, @Param("held") Collection<Long> held);
+
+    // Whether a free, active spot of the type other than the given ids exists, locked or not (a plain read
+    // never waits for row locks)
+    boolean existsByTypeAndIsBookedAndIsActiveAndIdNotIn(String type, boolean isBooked, boolean isActive,
+            Collection<Long> ids);
+
+    // Book the spot only if it is still free and active, returns the number of rows updated (0 or 1)
+    @Modifying
+    @Transactional
+    @Query("UPDATE ParkingSpot p SET p.isBooked = true, p.updatedAt = :now, p.version = p.version + 1 "
+            + "WHERE p.id = :id AND p.isBooked = false AND p.isActive = true")
+    int markBookedIfFree(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Free the spot only if it is currently booked, returns the number of rows updated (0 or 1)
+    @Modifying
+    @Transactional
+    @Query("UPDATE ParkingSpot p SET p.isBooked = false, p.updatedAt = :now, p.version = p.version + 1 "
+            + "WHERE p.id = :id AND p.isBooked = true")
+    int markFreeIfBooked(@Param("id") Long id, @Param("now") LocalDateTime now);
 }
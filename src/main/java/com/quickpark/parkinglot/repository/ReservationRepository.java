@@ -0,0 +1,49 @@
+package com.quickpark.parkinglot.repository;
+
+import com.quickpark.parkinglot.entities.Reservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+
+    // Reservations whose window is still open, to rebuild the spot calendars
+    List<Reservation> findByStatusInAndEndTimeAfter(Collection<String> statuses, LocalDateTime now);
+
+    // ACTIVE reservations starting before the given time, the ones to hold a spot for (or expire)
+    List<Reservation> findByStatusAndStartTimeLessThanEqual(String status, LocalDateTime before);
+
+    List<Reservation> findByEmailOrderByStartTimeDesc(String email);
+
+    // Whether the vehicle already has a reservation overlapping [start, end)
+    @Query("SELECT COUNT(r) > 0 FROM Reservation r WHERE r.vehicleNo = :vehicleNo AND r.status = 'ACTIVE' "
+            + "AND r.startTime < :end AND r.endTime > :start")
+    boolean existsActiveOverlapping(@Param("vehicleNo") String vehicleNo, @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    // ACTIVE and FULFILLED reservations on the spot overlapping [start, end), the windows in the spot calendars
+    @Query("SELECT r FROM Reservation r WHERE r.parkingSpot.id = :spotId AND r.status IN ('ACTIVE', 'FULFILLED') "
+            + "AND r.startTime < :end AND r.endTime > :start")
+    List<Reservation> findOpenOverlappingOnSpot(@Param("spotId") Long spotId, @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    // Lock the vehicle's reservation_vehicles row (inserted on first use) until the transaction ends
+    @Modifying
+    @Query(value = "INSERT INTO reservation_vehicles (vehicle_no) VALUES (:vehicleNo) "
+            + "ON DUPLICATE KEY UPDATE vehicle_no = vehicle_no", nativeQuery = true)
+    int lockVehicle(@Param("vehicleNo") String vehicleNo);
+
+    // Moves the reservation on only from the expected status, returns the number of rows updated (0 or 1)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Reservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") String from, @Param("to") String to);
+}
@@ -0,0 +1,20 @@
+package com.quickpark.parkinglot.repository;
+
+import com.quickpark.parkinglot.entities.SectionLayout;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SectionLayoutRepository extends JpaRepository<SectionLayout, Integer> {
+
+    // SELECT ... FOR UPDATE, provisioning of one section at a time, must run inside a transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM SectionLayout l WHERE l.section = :section")
+    Optional<SectionLayout> lockBySection(@Param("section") int section);
+}
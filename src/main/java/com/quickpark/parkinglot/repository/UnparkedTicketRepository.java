@@ -1,6 +1,8 @@
 package com.quickpark.parkinglot.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.quickpark.parkinglot.entities.UnparkedTicket;
@@ -10,7 +12,8 @@ import org.springframework.lang.NonNull;
 
 @Repository
 public interface UnparkedTicketRepository extends JpaRepository<UnparkedTicket, Long> {
-    UnparkedTicket findByVehicleNo(String vehicleNo);
+    // The history keeps every visit, a vehicle can have many rows
+    List<UnparkedTicket> findByVehicleNo(String vehicleNo);
 
     boolean existsByVehicleNo(String vehicleNo);
 
@@ -18,6 +21,22 @@ public interface UnparkedTicketRepository extends JpaRepository<UnparkedTicket,
 
     List<UnparkedTicket> findByExitTimeBetween(LocalDateTime startTime, LocalDateTime endTime);
 
+    // Revenue summed in the database, for the partial hours at the edges of a revenue range
+    @Query("SELECT COALESCE(SUM(t.totalCost), 0) FROM UnparkedTicket t WHERE t.exitTime >= :from AND t.exitTime < :to")
+    long sumTotalCostExitedFrom(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT COALESCE(SUM(t.totalCost), 0) FROM UnparkedTicket t WHERE t.exitTime BETWEEN :from AND :to")
+    long sumTotalCostExitedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /*
+     * Revenue and ticket count per exit hour and vehicle type of the tickets that exited before the cutoff:
+     * [year, month, day, hour, type, revenue, tickets]. Used once to fill the rollup tables.
+     */
+    @Query("SELECT year(t.exitTime), month(t.exitTime), day(t.exitTime), hour(t.exitTime), t.parkingSpot.type, "
+            + "SUM(t.totalCost), COUNT(t) FROM UnparkedTicket t WHERE t.exitTime < :cutoff "
+            + "GROUP BY year(t.exitTime), month(t.exitTime), day(t.exitTime), hour(t.exitTime), t.parkingSpot.type")
+    List<Object[]> sumRevenueByExitHourAndType(@Param("cutoff") LocalDateTime cutoff);
+
     List<UnparkedTicket> findByEmail(String email);
 
     List<UnparkedTicket> findByOwnerContact(String ownerContact);
@@ -0,0 +1,15 @@
+package com.quickpark.parkinglot.request;
+
+/*
+ * Body of POST /admin/api/add-gate
+ * type is entry or exit, nearestRow is the section row closest to the gate (1 when left out)
+ * Fields are trimmed here, the service validates them
+ */
+public record GateRequest(String name, String type, String guardName, Integer nearestRow) {
+
+    public GateRequest {
+        name = name == null ? null : name.trim();
+        type = type == null ? null : type.trim().toLowerCase();
+        guardName = guardName == null ? null : guardName.trim();
+    }
+}
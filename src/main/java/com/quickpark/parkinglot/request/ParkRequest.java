@@ -0,0 +1,16 @@
+package com.quickpark.parkinglot.request;
+
+/*
+ * Body of POST /park, bound by Jackson straight into the record
+ * The user's email comes from the JWT, not from the body
+ * Fields are trimmed here, trim() returns the same string when there is nothing to strip
+ * gateId is optional, the entry gate the car comes in through, its reserved spots are tried first
+ */
+public record ParkRequest(String type, String vehicleNo, String vehicleModel, Long gateId) {
+
+    public ParkRequest {
+        type = type == null ? null : type.trim();
+        vehicleNo = vehicleNo == null ? null : vehicleNo.trim();
+        vehicleModel = vehicleModel == null ? null : vehicleModel.trim();
+    }
+}
@@ -0,0 +1,16 @@
+package com.quickpark.parkinglot.request;
+
+/*
+ * Body of POST /reservations
+ * startTime and endTime are YYYY-MM-DDTHH:MM:SS, the service rounds them to the minute
+ * Fields are trimmed here, trim() returns the same string when there is nothing to strip
+ */
+public record ReservationRequest(String type, String vehicleNo, String startTime, String endTime) {
+
+    public ReservationRequest {
+        type = type == null ? null : type.trim().toLowerCase();
+        vehicleNo = vehicleNo == null ? null : vehicleNo.trim();
+        startTime = startTime == null ? null : startTime.trim();
+        endTime = endTime == null ? null : endTime.trim();
+    }
+}
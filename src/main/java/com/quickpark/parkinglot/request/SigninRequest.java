@@ -0,0 +1,20 @@
+package com.quickpark.parkinglot.request;
+
+/*
+ * Body of POST /auth/signin, either email or contactNo identifies the user
+ * Fields are trimmed here, trim() returns the same string when there is nothing to strip
+ */
+public record SigninRequest(String email, String contactNo, String password) {
+
+    public SigninRequest {
+        email = email == null ? null : email.trim();
+        contactNo = contactNo == null ? null : contactNo.trim();
+        password = password == null ? null : password.trim();
+    }
+
+    // Keeps the password out of logs
+    @Override
+    public String toString() {
+        return "SigninRequest[email=" + email + ", contactNo=" + contactNo + "]";
+    }
+}
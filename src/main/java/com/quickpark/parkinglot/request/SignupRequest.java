@@ -0,0 +1,26 @@
+package com.quickpark.parkinglot.request;
+
+/*
+ * Body of POST /auth/signup, bound by Jackson straight into the record
+ * secretKey is optional, a valid one creates an ADMIN account
+ * Fields are trimmed here, trim() returns the same string when there is nothing to strip
+ */
+public record SignupRequest(String firstName, String lastName, String email, String contactNo, String password,
+        String address, String secretKey) {
+
+    public SignupRequest {
+        firstName = firstName == null ? null : firstName.trim();
+        lastName = lastName == null ? null : lastName.trim();
+        email = email == null ? null : email.trim();
+        contactNo = contactNo == null ? null : contactNo.trim();
+        password = password == null ? null : password.trim();
+        address = address == null ? null : address.trim();
+        secretKey = secretKey == null ? null : secretKey.trim();
+    }
+
+    // Keeps the password and the admin key out of logs
+    @Override
+    public String toString() {
+        return "SignupRequest[email=" + email + ", contactNo=" + contactNo + "]";
+    }
+}
@@ -0,0 +1,30 @@
+package com.quickpark.parkinglot.request;
+
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Body of PUT /admin/api/update-parking-spots
+ * locations are exact spot locations (S2-R3-C4), patterns select many spots at once:
+ * S2-*, S2-R3-*, S1-R1..R20 (rows 1 to 20) and S2-R3-C1..C5 (columns 1 to 5 of a row)
+ * Entries are trimmed and blanks dropped here, the service validates them
+ */
+public record SpotStatusRequest(Boolean active, List<String> locations, List<String> patterns) {
+
+    public SpotStatusRequest {
+        locations = clean(locations);
+        patterns = clean(patterns);
+    }
+
+    private static List<String> clean(List<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        return values.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .distinct()
+                .toList();
+    }
+}
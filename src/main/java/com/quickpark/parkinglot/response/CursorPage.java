@@ -0,0 +1,10 @@
+package com.quickpark.parkinglot.response;
+
+import java.util.List;
+
+/*
+ * One page of a keyset-paginated listing
+ * nextCursor is the id to pass as ?after= for the next page, null on the last page
+ */
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+}
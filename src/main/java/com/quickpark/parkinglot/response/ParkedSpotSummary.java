@@ -0,0 +1,11 @@
+package com.quickpark.parkinglot.response;
+
+import java.time.LocalDateTime;
+
+/*
+ * One occupied spot in the admin listings with the ticket that holds it,
+ * selected straight into the record by the query
+ */
+public record ParkedSpotSummary(Long ticketId, String location, String type, String vehicleNo, String vehicleModel,
+        String firstName, String lastName, String email, String ownerContact, LocalDateTime entryTime) {
+}
@@ -0,0 +1,8 @@
+package com.quickpark.parkinglot.response;
+
+/*
+ * Spot counts of one vehicle type
+ * free = active and not booked, the spots a user can get right now
+ */
+public record SpotCount(String type, long total, long booked, long free, long inactive) {
+}
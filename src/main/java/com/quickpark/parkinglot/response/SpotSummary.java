@@ -0,0 +1,8 @@
+package com.quickpark.parkinglot.response;
+
+/*
+ * One parking spot in the admin listings, selected straight into the record by the query
+ * so no entity (and no persistence context entry) is created per row
+ */
+public record SpotSummary(Long id, String location, String type, int cost, boolean booked, boolean active) {
+}
@@ -1,22 +1,32 @@
 package com.quickpark.parkinglot.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import com.quickpark.parkinglot.Exceptions.*;
-import com.quickpark.parkinglot.entities.CompactParkingSpot;
-import com.quickpark.parkinglot.entities.LargeParkingSpot;
-import com.quickpark.parkinglot.entities.MiniParkingSpot;
+import com.quickpark.parkinglot.entities.DisplayBoard;
+import com.quickpark.parkinglot.entities.Gate;
 import com.quickpark.parkinglot.entities.ParkedTicket;
 import com.quickpark.parkinglot.entities.ParkingSpot;
 import com.quickpark.parkinglot.entities.UnparkedTicket;
+import com.quickpark.parkinglot.repository.GateRepository;
 import com.quickpark.parkinglot.repository.ParkingSpotRepository;
 import com.quickpark.parkinglot.repository.UnparkedTicketRepository;
-import com.quickpark.parkinglot.repository.UserRepository;
 import com.quickpark.parkinglot.repository.ParkedTicketRepository;
 import com.quickpark.parkinglot.custom.Pair;
+import com.quickpark.parkinglot.request.GateRequest;
+import com.quickpark.parkinglot.request.SpotStatusRequest;
+import com.quickpark.parkinglot.response.CursorPage;
+import com.quickpark.parkinglot.response.DisplayResponse;
+import com.quickpark.parkinglot.response.ParkedSpotSummary;
+import com.quickpark.parkinglot.response.SpotCount;
+import com.quickpark.parkinglot.response.SpotSummary;
+import io.micrometer.core.instrument.Timer;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,20 +36,44 @@ public class AdminService implements IAdminService {
     private final ParkingSpotRepository parkingSpotRepository;
     private final UnparkedTicketRepository unparkedTicketRepository;
     private final ParkedTicketRepository parkedTicketRepository;
-    private final UserRepository userRepository;
+    private final GateRepository gateRepository;
+    private final UserCache userCache;
     private final Validation validation;
+    private final SpotAllocator spotAllocator;
+    private final ParkingMetrics metrics;
+    private final RevenueRollupService revenueRollupService;
+    private final ReservationService reservationService;
+    private final SpotProvisioningService spotProvisioningService;
+    private final SpotStatusService spotStatusService;
+
+    @Value("${admin.listing.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${admin.listing.max-page-size:1000}")
+    private int maxPageSize;
 
     public AdminService(ParkingSpotRepository parkingSpotRepository, UnparkedTicketRepository unparkedTicketRepository,
-            ParkedTicketRepository parkedTicketRepository, UserRepository userRepository, Validation validation) {
+            ParkedTicketRepository parkedTicketRepository, GateRepository gateRepository, UserCache userCache,
+            Validation validation, SpotAllocator spotAllocator, ParkingMetrics metrics,
+            RevenueRollupService revenueRollupService, ReservationService reservationService,
+            SpotProvisioningService spotProvisioningService, SpotStatusService spotStatusService) {
+        this.spotStatusService = spotStatusService;
+        this.revenueRollupService = revenueRollupService;
+        this.spotProvisioningService = spotProvisioningService;
+        this.reservationService = reservationService;
         this.parkingSpotRepository = parkingSpotRepository;
         this.unparkedTicketRepository = unparkedTicketRepository;
         this.parkedTicketRepository = parkedTicketRepository;
-        this.userRepository = userRepository;
+        this.gateRepository = gateRepository;
+        this.userCache = userCache;
         this.validation = validation;
+        this.spotAllocator = spotAllocator;
+        this.metrics = metrics;
     }
 
     @Override
     public Map<String, Object> addParkingSpots(Map<String, Integer> parkingSpotRequest) {
+        Timer.Sample sample = metrics.startTimer();
         try {
             if (parkingSpotRequest == null || parkingSpotRequest.isEmpty()) {
                 throw new ValidationException(
@@ -64,45 +98,11 @@ public class AdminService implements IAdminService {
                     throw new ValidationException("Invalid count for type " + type + ". Count must be greater than 0");
                 }
 
-                // Get the section number based on type
-                int sectionNumber = getSectionNumber(type);
-
-                // Get the next available position for this type
-                Map<String, Integer> nextPosition = getNextAvailablePosition(type, sectionNumber);
-                int nextRow = nextPosition.get("row");
-                int nextCol = nextPosition.get("col");
-
-                // Create and save the parking spots
-                List<ParkingSpot> spotsToSave = new ArrayList<>();
-                int maxColumnsPerRow = 10; // Define maximum columns per row
-
-                for (int i = 0; i < count; i++) {
-                    String location = String.format("S%d-R%d-C%d", sectionNumber, nextRow, nextCol);
-
-                    // Check if location already exists (safety check)
-                    if (parkingSpotRepository.existsByLocation(location)) {
-                        throw new DuplicateResourceException(
-                                "Location " + location + " already exists. Data integrity issue.");
-                    }
-
-                    ParkingSpot spot = createParkingSpot(type, location);
-                    spot.setActive(true);
-                    spot.setBooked(false);
-                    spot.setCreatedAt(LocalDateTime.now());
-                    spot.setUpdatedAt(LocalDateTime.now());
-
-                    spotsToSave.add(spot);
-
-                    // Move to next position
-                    nextCol++;
-                    if (nextCol > maxColumnsPerRow) {
-                        nextCol = 1;
-                        nextRow++;
-                    }
-                }
-
-                // Save all spots for this type
-                parkingSpotRepository.saveAll(spotsToSave);
+                // Positions from the section's layout cursor, inserted in JDBC batches and committed
+                List<ParkingSpot> savedSpots = spotProvisioningService.provision(type, count);
+                // Bookable from here on
+                spotAllocator.addSpots(savedSpots);
+                reservationService.spotsAdded(savedSpots);
                 addedSpots.put(type, count);
                 totalAdded += count;
             }
@@ -115,100 +115,31 @@ public class AdminService implements IAdminService {
             return response;
         } catch (Exception e) {
             throw new RuntimeException("Error adding parking spots: " + e.getMessage());
-        }
-    }
-
-    // Get section number based on parking spot type
-    private int getSectionNumber(String type) {
-        switch (type.toLowerCase()) {
-            case "mini":
-                return 1;
-            case "compact":
-                return 2;
-            case "large":
-                return 3;
-            default:
-                throw new ValidationException("Invalid type: " + type);
-        }
-    }
-
-    // Get the next available position (row, column) for a given type
-    private Map<String, Integer> getNextAvailablePosition(String type, int sectionNumber) {
-        Map<String, Integer> position = new HashMap<>();
-
-        // Get all existing spots of this type
-        List<ParkingSpot> existingSpots = parkingSpotRepository.findByType(type);
-
-        if (existingSpots.isEmpty()) {
-            // No existing spots, start from S{section}-R1-C1
-            position.put("row", 1);
-            position.put("col", 1);
-        } else {
-            // Find the highest location
-            int maxRow = 0;
-            int maxCol = 0;
-
-            for (ParkingSpot spot : existingSpots) {
-                String location = spot.getLocation();
-                String[] parts = location.split("-");
-
-                int row = Integer.parseInt(parts[1].substring(1)); // Remove 'R'
-                int col = Integer.parseInt(parts[2].substring(1)); // Remove 'C'
-
-                if (row > maxRow || (row == maxRow && col > maxCol)) {
-                    maxRow = row;
-                    maxCol = col;
-                }
-            }
-
-            // Calculate next position
-            int maxColumnsPerRow = 10;
-            maxCol++;
-            if (maxCol > maxColumnsPerRow) {
-                maxCol = 1;
-                maxRow++;
-            }
-
-            position.put("row", maxRow);
-            position.put("col", maxCol);
-        }
-
-        return position;
-    }
-
-    // Create a parking spot instance based on type
-    private ParkingSpot createParkingSpot(String type, String location) {
-        switch (type.toLowerCase()) {
-            case "mini":
-                return new MiniParkingSpot(location);
-            case "compact":
-                return new CompactParkingSpot(location);
-            case "large":
-                return new LargeParkingSpot(location);
-            default:
-                throw new ValidationException("Invalid type: " + type);
+        } finally {
+            metrics.adminOperationCompleted(sample, "add-spots");
         }
     }
 
     // Get current totals of all parking spot types (both active and inactive)
     private Map<String, Long> getCurrentTotals() {
         Map<String, Long> totals = new HashMap<>();
-        totals.put("mini", parkingSpotRepository.findByType("mini").stream().count());
-        totals.put("compact", parkingSpotRepository.findByType("compact").stream().count());
-        totals.put("large", parkingSpotRepository.findByType("large").stream().count());
+        totals.put("mini", parkingSpotRepository.countByType("mini"));
+        totals.put("compact", parkingSpotRepository.countByType("compact"));
+        totals.put("large", parkingSpotRepository.countByType("large"));
         totals.put("total", parkingSpotRepository.count());
         return totals;
     }
 
     @Override
     public Map<String, Object> updateParkingSpotStatus(Map<String, Boolean> statusRequest) {
+        Timer.Sample sample = metrics.startTimer();
         try {
             if (statusRequest == null || statusRequest.isEmpty()) {
                 throw new ValidationException("Status request cannot be null or empty");
             }
             Map<String, Object> response = new HashMap<>();
-            List<String> updated = new ArrayList<>();
-            List<String> notFound = new ArrayList<>();
+            List<String> activate = new ArrayList<>();
+            List<String> deactivate = new ArrayList<>();
 
             for (Map.Entry<String, Boolean> entry : statusRequest.entrySet()) {
                 String location = entry.getKey();
@@ -220,22 +151,134 @@ public class AdminService implements IAdminService {
                 if (location == null || location.isEmpty() || isActive == null) {
                     continue;
                 }
-
-                ParkingSpot spot = parkingSpotRepository.findByLocation(location);
-                if (spot == null) {
-                    notFound.add(location);
-                    continue;
-                }
-                spot.setActive(isActive);
-                spot.setUpdatedAt(LocalDateTime.now());
-                parkingSpotRepository.save(spot);
-                updated.add(location);
+                (isActive ? activate : deactivate).add(location);
             }
+
+            // One set-based update per target state
+            List<String> notFound = new ArrayList<>();
+            notFound.addAll(spotStatusService.setActive(activate, List.of(), true).notFound());
+            notFound.addAll(spotStatusService.setActive(deactivate, List.of(), false).notFound());
+            List<String> updated = new ArrayList<>(activate);
+            updated.addAll(deactivate);
+            updated.removeAll(notFound);
             response.put("updated", updated);
             response.put("not_found", notFound);
             return response;
         } catch (Exception e) {
             throw new RuntimeException("Error updating parking spot status: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "update-spot-status");
+        }
+    }
+
+    @Override
+    public Map<String, Object> updateParkingSpotsStatus(SpotStatusRequest statusRequest) {
+        Timer.Sample sample = metrics.startTimer();
+        try {
+            if (statusRequest == null || statusRequest.active() == null) {
+                throw new ValidationException("active must be true or false");
+            }
+            if (statusRequest.locations().isEmpty() && statusRequest.patterns().isEmpty()) {
+                throw new ValidationException("Provide at least one location or pattern");
+            }
+            SpotStatusService.Result result = spotStatusService.setActive(statusRequest.locations(),
+                    statusRequest.patterns(), statusRequest.active());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("active", statusRequest.active());
+            response.put("matched", result.matched());
+            response.put("updated", result.updated());
+            response.put("unchanged", result.matched() - result.updated());
+            response.put("notFoundCount", result.notFound().size());
+            response.put("notFound", result.notFound());
+            return response;
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating parking spot status: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "update-spots-status");
+        }
+    }
+
+    @Override
+    public DisplayResponse reconcileOccupancy() {
+        Timer.Sample sample = metrics.startTimer();
+        try {
+            // Rebuild the free spot pools and the display board counters from the database
+            spotAllocator.loadFromDatabase();
+            DisplayBoard displayBoard = DisplayBoard.getInstance();
+            DisplayResponse displayResponse = new DisplayResponse();
+            displayResponse.freeMini = displayBoard.getFreeMiniParkingSpots();
+            displayResponse.freeCompact = displayBoard.getFreeCompactParkingSpots();
+            displayResponse.freeLarge = displayBoard.getFreeLargeParkingSpots();
+            displayResponse.bookedMini = displayBoard.getBookedMiniParkingSpots();
+            displayResponse.bookedCompact = displayBoard.getBookedCompactParkingSpots();
+            displayResponse.bookedLarge = displayBoard.getBookedLargeParkingSpots();
+            return displayResponse;
+        } catch (Exception e) {
+            throw new RuntimeException("Error reconciling occupancy: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "reconcile-occupancy");
+        }
+    }
+
+    @Override
+    public List<Gate> getGates() {
+        try {
+            return gateRepository.findAll();
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching gates: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Gate addGate(GateRequest gateRequest) {
+        Timer.Sample sample = metrics.startTimer();
+        try {
+            if (gateRequest == null || gateRequest.name() == null || gateRequest.name().isEmpty()) {
+                throw new ValidationException("Gate name cannot be null or empty");
+            }
+            if (!"entry".equals(gateRequest.type()) && !"exit".equals(gateRequest.type())) {
+                throw new ValidationException("Invalid gate type. Allowed types are: entry, exit.");
+            }
+            if (gateRequest.nearestRow() != null && gateRequest.nearestRow() < 1) {
+                throw new ValidationException("Nearest row must be 1 or greater");
+            }
+            Gate gate = new Gate(null, gateRequest.name(), gateRequest.type(), gateRequest.guardName(), true);
+            gate.setNearestRow(gateRequest.nearestRow());
+            gate = gateRepository.save(gate);
+            // A new entry gate gets its reserved spots straight away
+            spotAllocator.loadGates();
+            return gate;
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error adding gate: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "add-gate");
+        }
+    }
+
+    @Override
+    public Gate updateGateStatus(Long gateId, boolean open) {
+        Timer.Sample sample = metrics.startTimer();
+        try {
+            if (gateId == null) {
+                throw new ValidationException("Gate id cannot be null");
+            }
+            Gate gate = gateRepository.findById(gateId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Gate with id " + gateId + " not found"));
+            gate.setStatus(open);
+            gate = gateRepository.save(gate);
+            // Closing a gate hands its reserved spots back to the other gates
+            spotAllocator.loadGates();
+            return gate;
+        } catch (ValidationException | ResourceNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating gate status: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "update-gate-status");
         }
     }
 
@@ -323,8 +366,123 @@ public class AdminService implements IAdminService {
         }
     }
 
+    @Override
+    public CursorPage<SpotSummary> getSpotsPage(String type, Integer section, Boolean booked, Boolean active,
+            Long after, Integer limit) {
+        Timer.Sample sample = metrics.startTimer();
+        try {
+            type = normalizeTypeFilter(type);
+            int pageSize = resolvePageSize(limit);
+            // One extra row tells whether there is a next page without a COUNT
+            List<SpotSummary> rows = parkingSpotRepository.findSpotPage(after == null ? 0 : after, type,
+                    sectionPrefix(section), booked, active, PageRequest.of(0, pageSize + 1));
+            boolean hasNext = rows.size() > pageSize;
+            List<SpotSummary> items = hasNext ? rows.subList(0, pageSize) : rows;
+            return new CursorPage<>(items, hasNext ? items.get(items.size() - 1).id() : null);
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching parking spots: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "list-spots");
+        }
+    }
+
+    @Override
+    public CursorPage<ParkedSpotSummary> getParkedSpotsPage(String type, Integer section, Long after, Integer limit) {
+        Timer.Sample sample = metrics.startTimer();
+        try {
+            type = normalizeTypeFilter(type);
+            int pageSize = resolvePageSize(limit);
+            List<ParkedSpotSummary> rows = parkedTicketRepository.findParkedSpotPage(after == null ? 0 : after, type,
+                    sectionPrefix(section), PageRequest.of(0, pageSize + 1));
+            boolean hasNext = rows.size() > pageSize;
+            List<ParkedSpotSummary> items = hasNext ? rows.subList(0, pageSize) : rows;
+            return new CursorPage<>(items, hasNext ? items.get(items.size() - 1).ticketId() : null);
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching parked spots: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "list-parked-spots");
+        }
+    }
+
+    @Override
+    public List<SpotCount> getSpotCounts(Integer section) {
+        Timer.Sample sample = metrics.startTimer();
+        try {
+            String prefix = sectionPrefix(section);
+            List<Object[]> rows = prefix == null
+                    ? parkingSpotRepository.countByTypeAndBookingAndActiveStatus()
+                    : parkingSpotRepository.countByTypeAndBookingAndActiveStatusAndLocationLike(prefix);
+            // [total, booked, free, inactive] per type, in the usual mini, compact, large order
+            Map<String, long[]> counts = new LinkedHashMap<>();
+            for (String type : List.of("mini", "compact", "large")) {
+                counts.put(type, new long[4]);
+            }
+            for (Object[] row : rows) {
+                long[] c = counts.computeIfAbsent((String) row[0], t -> new long[4]);
+                boolean isBooked = (Boolean) row[1];
+                boolean isActive = (Boolean) row[2];
+                long count = ((Number) row[3]).longValue();
+                c[0] += count;
+                if (isBooked) {
+                    c[1] += count;
+                } else if (isActive) {
+                    c[2] += count;
+                }
+                if (!isActive) {
+                    c[3] += count;
+                }
+            }
+            List<SpotCount> result = new ArrayList<>(counts.size());
+            counts.forEach((type, c) -> result.add(new SpotCount(type, c[0], c[1], c[2], c[3])));
+            return result;
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error counting parking spots: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "count-spots");
+        }
+    }
+
+    private String normalizeTypeFilter(String type) {
+        if (type == null || type.isBlank()) {
+            return null;
+        }
+        type = type.trim().toLowerCase();
+        if (!validation.isValidVehicleType(type)) {
+            throw new ValidationException("Invalid vehicle type. Allowed types are: mini, large, compact.");
+        }
+        return type;
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new ValidationException("Page size must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+
+    // Locations are S<section>-R<row>-C<column>, a section filter is a prefix match on the unique location index
+    private String sectionPrefix(Integer section) {
+        if (section == null) {
+            return null;
+        }
+        if (section < 1) {
+            throw new ValidationException("Section must be a positive number");
+        }
+        return "S" + section + "-%";
+    }
+
     @Override
     public long calculateRevenueBetweenDates(String startDateStr, String endDateStr) {
+        Timer.Sample sample = metrics.startTimer();
         try {
             if (startDateStr != null) {
                 startDateStr = startDateStr.trim();
@@ -346,14 +504,12 @@ public class AdminService implements IAdminService {
             }
             LocalDateTime startDate = LocalDateTime.parse(startDateStr);
             LocalDateTime endDate = LocalDateTime.parse(endDateStr);
-            List<UnparkedTicket> tickets = unparkedTicketRepository.findByExitTimeBetween(startDate, endDate);
-            long totalRevenue = 0;
-            for (UnparkedTicket ticket : tickets) {
-                totalRevenue += ticket.getTotalCost();
-            }
-            return totalRevenue;
+            // Summed from the hourly/daily rollups, only the partial hours at the edges touch the tickets
+            return revenueRollupService.revenueBetween(startDate, endDate);
         } catch (Exception e) {
             throw new RuntimeException("Error calculating revenue: " + e.getMessage());
+        } finally {
+            metrics.adminOperationCompleted(sample, "revenue");
         }
     }
 
@@ -368,7 +524,7 @@ public class AdminService implements IAdminService {
             if (!validation.isValidEmail(email)) {
                 throw new ValidationException("Invalid email format: " + email);
             }
-            if (!userRepository.existsByEmail(email)) {
+            if (!userCache.existsByEmail(email)) {
                 throw new ResourceNotFoundException("User with email " + email + " not found");
             }
             List<ParkedTicket> parkedTickets = parkedTicketRepository.findByEmail(email);
@@ -0,0 +1,229 @@
+package com.quickpark.parkinglot.service;
+
+import com.quickpark.parkinglot.entities.OutboxEmail;
+import com.quickpark.parkinglot.repository.OutboxEmailRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Drains the email outbox in the background.
+ * Every run picks up to email.outbox.batch-size due messages and hands them to the mail sender in one
+ * send() call, which delivers them over a single SMTP connection. A message that fails is retried after
+ * email.outbox.retry-base-seconds, doubling on every attempt up to email.outbox.retry-max-seconds,
+ * and marked FAILED after email.outbox.max-attempts. Sent rows are purged after email.outbox.retention-days.
+ * The poll only hands the drain to the dispatcher's own EmailOutbox- thread and returns, so an SMTP
+ * server that takes its full timeouts never holds up the shared scheduler thread and the other jobs on it.
+ * A poll that finds a drain still running does nothing.
+ * Every instance runs a dispatcher. A batch is claimed in a short transaction that locks its rows with
+ * SKIP LOCKED and marks them SENDING, so instances send different rows and the SMTP send holds no locks.
+ * A claim lasts email.outbox.claim-seconds, a row still SENDING after that (its instance died mid-send)
+ * goes back to PENDING and is sent again.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final JavaMailSender mailSender;
+    private final ParkingMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService sender;
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    @Value("${spring.mail.username:noreply@quickpark.com}")
+    private String fromEmail;
+
+    @Value("${email.from.name:QuickPark Support}")
+    private String fromName;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.retry-base-seconds:30}")
+    private long retryBaseSeconds;
+
+    @Value("${email.outbox.retry-max-seconds:3600}")
+    private long retryMaxSeconds;
+
+    @Value("${email.outbox.claim-seconds:600}")
+    private long claimSeconds;
+
+    @Value("${email.outbox.retention-days:7}")
+    private long retentionDays;
+
+    public EmailOutboxDispatcher(OutboxEmailRepository outboxEmailRepository, JavaMailSender mailSender,
+            ParkingMetrics metrics, TransactionTemplate transactionTemplate) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.mailSender = mailSender;
+        this.metrics = metrics;
+        this.transactionTemplate = transactionTemplate;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("EmailOutbox-");
+        threadFactory.setDaemon(true);
+        this.sender = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(() -> {
+                try {
+                    drain();
+                } finally {
+                    draining.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The application is shutting down
+            draining.set(false);
+        }
+    }
+
+    void drain() {
+        try {
+            int released = outboxEmailRepository.releaseExpiredClaims(LocalDateTime.now());
+            if (released > 0) {
+                System.err.println("Released " + released + " outbox emails whose claim expired, sending them again");
+            }
+            // Keep going while full batches come back, a backlog drains without waiting for the next poll
+            int sent;
+            do {
+                sent = dispatchBatch();
+            } while (sent == batchSize);
+        } catch (Exception e) {
+            // The database is unreachable, unclaimed rows are picked up on the next run and claimed ones
+            // once their claim expires
+            System.err.println("Email outbox dispatch failed: " + e.getMessage());
+        } finally {
+            updateQueueDepth();
+        }
+    }
+
+    // Returns the number of messages picked up
+    int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEmail> batch = claimBatch(now);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Same order as the queue, the oldest email goes out first
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        List<OutboxEmail> sending = new ArrayList<>(batch.size());
+        for (OutboxEmail email : batch) {
+            try {
+                messages.add(toMimeMessage(email));
+                sending.add(email);
+            } catch (MessagingException e) {
+                // Bad address or content, no point retrying
+                email.markFailed(e.getMessage(), null);
+                metrics.emailFailed(true);
+            }
+        }
+
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        if (!messages.isEmpty()) {
+            try {
+                mailSender.send(messages.toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                failures.putAll(e.getFailedMessages());
+                if (failures.isEmpty()) {
+                    // Connection level failure, nothing went out
+                    messages.forEach(message -> failures.put(message, e));
+                }
+            } catch (MailException e) {
+                messages.forEach(message -> failures.put(message, e));
+            }
+        }
+
+        int delivered = 0;
+        for (int i = 0; i < sending.size(); i++) {
+            OutboxEmail email = sending.get(i);
+            Exception failure = failures.get(messages.get(i));
+            if (failure == null) {
+                email.markSent(now);
+                delivered++;
+            } else {
+                boolean giveUp = email.getAttempts() + 1 >= maxAttempts;
+                email.markFailed(failure.getMessage(), giveUp ? null : now.plusSeconds(backoffSeconds(email)));
+                metrics.emailFailed(giveUp);
+                if (giveUp) {
+                    System.err.println("Giving up on email " + email.getId() + " to " + email.getToAddress()
+                            + " after " + email.getAttempts() + " attempts: " + failure.getMessage());
+                }
+            }
+        }
+        metrics.emailsSent(delivered);
+        outboxEmailRepository.saveAll(batch);
+        return batch.size();
+    }
+
+    // Marked SENDING on commit, the rows are no longer due for other dispatchers
+    private List<OutboxEmail> claimBatch(LocalDateTime now) {
+        return transactionTemplate.execute(status -> {
+            List<OutboxEmail> batch = outboxEmailRepository.lockDueBatch(now, batchSize);
+            batch.forEach(email -> email.markSending(now.plusSeconds(claimSeconds)));
+            return batch;
+        });
+    }
+
+    @Scheduled(cron = "${email.outbox.purge-cron:0 30 3 * * *}")
+    public void purgeSent() {
+        int purged = outboxEmailRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " sent emails from the outbox");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private long backoffSeconds(OutboxEmail email) {
+        long backoff = retryBaseSeconds << Math.min(email.getAttempts(), 20);
+        return Math.min(backoff, retryMaxSeconds);
+    }
+
+    private MimeMessage toMimeMessage(OutboxEmail email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, email.isHtml(), "UTF-8");
+        helper.setFrom(fromName + " <" + fromEmail + ">");
+        helper.setTo(email.getToAddress());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody(), email.isHtml());
+        return message;
+    }
+
+    private void updateQueueDepth() {
+        try {
+            metrics.emailOutboxDepth(outboxEmailRepository.countByStatus(OutboxEmail.PENDING));
+        } catch (Exception e) {
+            // Keep the last known depth
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.quickpark.parkinglot.service;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * An email template parsed once into static text segments and {{name}} slots.
+ * render() takes one value per distinct slot name in order of first appearance, the names are checked
+ * against the file when the template is loaded so a template and its caller can't drift apart silently.
+ * Strings are HTML escaped, numbers are appended as is. The output buffer is sized up front from the
+ * static text plus the largest render so far, so a render is one StringBuilder and the resulting String.
+ */
+public final class EmailTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final int SLOT_ESTIMATE = 32; // initial guess per slot before anything was rendered
+
+    private final String name;
+    private final String[] segments; // segments[i] comes before slot i, the last one closes the template
+    private final int[] slotValues; // slot i renders values[slotValues[i]]
+    private final String[] valueNames;
+    private volatile int capacity;
+
+    private EmailTemplate(String name, String[] segments, int[] slotValues, String[] valueNames) {
+        this.name = name;
+        this.segments = segments;
+        this.slotValues = slotValues;
+        this.valueNames = valueNames;
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.capacity = length + slotValues.length * SLOT_ESTIMATE;
+    }
+
+    // Loads templates/email/<name>.html, valueNames are the slots the caller will pass, in order
+    public static EmailTemplate load(String name, String... valueNames) {
+        String path = "templates/email/" + name + ".html";
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return parse(name, new String(in.readAllBytes(), StandardCharsets.UTF_8), valueNames);
+        } catch (IOException e) {
+            throw new IllegalStateException("Email template " + path + " could not be read: " + e.getMessage());
+        }
+    }
+
+    static EmailTemplate parse(String name, String source, String... valueNames) {
+        List<String> segments = new ArrayList<>();
+        List<String> slotNames = new ArrayList<>();
+        int pos = 0;
+        int open;
+        while ((open = source.indexOf(OPEN, pos)) >= 0) {
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalStateException("Email template " + name + " has an unclosed slot at " + open);
+            }
+            segments.add(source.substring(pos, open));
+            slotNames.add(source.substring(open + OPEN.length(), close).trim());
+            pos = close + CLOSE.length();
+        }
+        segments.add(source.substring(pos));
+
+        List<String> distinct = slotNames.stream().distinct().toList();
+        if (!distinct.equals(Arrays.asList(valueNames))) {
+            throw new IllegalStateException("Email template " + name + " has slots " + distinct
+                    + " but the caller passes " + Arrays.toString(valueNames));
+        }
+        int[] slotValues = new int[slotNames.size()];
+        for (int i = 0; i < slotValues.length; i++) {
+            slotValues[i] = distinct.indexOf(slotNames.get(i));
+        }
+        return new EmailTemplate(name, segments.toArray(new String[0]), slotValues, valueNames.clone());
+    }
+
+    public String render(Object... values) {
+        if (values.length != valueNames.length) {
+            throw new IllegalArgumentException("Email template " + name + " expects " + valueNames.length
+                    + " values " + Arrays.toString(valueNames) + " but got " + values.length);
+        }
+        StringBuilder out = new StringBuilder(capacity);
+        for (int i = 0; i < slotValues.length; i++) {
+            out.append(segments[i]);
+            appendValue(out, values[slotValues[i]]);
+        }
+        out.append(segments[segments.length - 1]);
+        // Remember the largest output so the next render doesn't have to grow the buffer
+        if (out.length() > capacity) {
+            capacity = out.length();
+        }
+        return out.toString();
+    }
+
+    private static void appendValue(StringBuilder out, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            out.append(((Number) value).longValue());
+            return;
+        }
+        appendEscaped(out, value.toString());
+    }
+
+    static void appendEscaped(StringBuilder out, String text) {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(text, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(text, start, text.length());
+    }
+}
@@ -3,12 +3,30 @@ package com.quickpark.parkinglot.service;
 import java.util.Map;
 import java.util.List;
 import com.quickpark.parkinglot.custom.Pair;
+import com.quickpark.parkinglot.entities.Gate;
+import com.quickpark.parkinglot.request.GateRequest;
+import com.quickpark.parkinglot.request.SpotStatusRequest;
+import com.quickpark.parkinglot.response.CursorPage;
+import com.quickpark.parkinglot.response.DisplayResponse;
+import com.quickpark.parkinglot.response.ParkedSpotSummary;
+import com.quickpark.parkinglot.response.SpotCount;
+import com.quickpark.parkinglot.response.SpotSummary;
 
 public interface IAdminService {
     public Map<String, Object> addParkingSpots(Map<String, Integer> parkingSpotRequest);
 
     public Map<String, Object> updateParkingSpotStatus(Map<String, Boolean> statusRequest);
 
+    public Map<String, Object> updateParkingSpotsStatus(SpotStatusRequest statusRequest);
+
+    public DisplayResponse reconcileOccupancy();
+
+    public List<Gate> getGates();
+
+    public Gate addGate(GateRequest gateRequest);
+
+    public Gate updateGateStatus(Long gateId, boolean open);
+
     public Map<String, Object> getAllParkingSpots();
 
     public List<Pair> getAllParkedSpots();
@@ -17,5 +35,12 @@ public interface IAdminService {
 
     public List<Pair> getAllSpotsByActiveStatus(boolean active);
 
+    public CursorPage<SpotSummary> getSpotsPage(String type, Integer section, Boolean booked, Boolean active,
+            Long after, Integer limit);
+
+    public CursorPage<ParkedSpotSummary> getParkedSpotsPage(String type, Integer section, Long after, Integer limit);
+
+    public List<SpotCount> getSpotCounts(Integer section);
+
     public long calculateRevenueBetweenDates(String startDate, String endDate);
 }
\ No newline at end of file
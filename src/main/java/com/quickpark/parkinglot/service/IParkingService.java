@@ -1,15 +1,14 @@
 package com.quickpark.parkinglot.service;
 
-import java.util.Map;
-
 import com.quickpark.parkinglot.entities.ParkedTicket;
 import com.quickpark.parkinglot.response.DisplayResponse;
 import com.quickpark.parkinglot.entities.UnparkedTicket;
+import com.quickpark.parkinglot.request.ParkRequest;
 
 public interface IParkingService {
     public DisplayResponse getFreeParkingSpots();
 
-    public ParkedTicket ParkVehicle(Map<String, String> requestBody);
+    public ParkedTicket ParkVehicle(String email, ParkRequest request);
 
     public UnparkedTicket UnparkVehicle(String ticketId, String userEmail);
 
@@ -0,0 +1,16 @@
+package com.quickpark.parkinglot.service;
+
+import java.util.List;
+import java.util.Map;
+import com.quickpark.parkinglot.entities.Reservation;
+import com.quickpark.parkinglot.request.ReservationRequest;
+
+public interface IReservationService {
+    public Reservation reserve(String email, ReservationRequest request);
+
+    public Map<String, Object> checkAvailability(String type, String startTime, String endTime);
+
+    public List<Reservation> getReservations(String email);
+
+    public Reservation cancelReservation(String email, Long reservationId);
+}
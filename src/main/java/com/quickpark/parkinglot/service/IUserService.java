@@ -4,11 +4,13 @@ import java.util.Map;
 import java.util.List;
 
 import com.quickpark.parkinglot.entities.User;
+import com.quickpark.parkinglot.request.SigninRequest;
+import com.quickpark.parkinglot.request.SignupRequest;
 
 public interface IUserService {
-    Map<String, String> registerUser(Map<String, String> signupRequest);
+    Map<String, String> registerUser(SignupRequest signupRequest);
 
-    Map<String, String> validateUser(String email, String contactNo, String password);
+    Map<String, String> validateUser(SigninRequest signinRequest);
 
     User updateUserDetails(String email, Map<String, String> userDetails);
 
@@ -0,0 +1,97 @@
+package com.quickpark.parkinglot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quickpark.parkinglot.Exceptions.DuplicateResourceException;
+import com.quickpark.parkinglot.Exceptions.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/*
+ * Completed responses of park, unpark and update-ticket by Idempotency-Key, so a gate terminal that
+ * retries after a timeout gets the original response from memory instead of "already parked" or a
+ * second unpark, without any database access.
+ * Keys are scoped by caller and operation. A key comes back with the request it was first used for
+ * (its fingerprint), reusing it for another request is rejected, and so is a retry that arrives while
+ * the first request is still running. Only 2xx responses are stored, a failed request can be retried
+ * with the same key. Entries are bounded by idempotency.max-size and expire after idempotency.ttl-seconds.
+ * The store is per instance, behind a load balancer retries need to reach the same instance to be replayed.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // response is null while the first request is running
+    private record Entry(String fingerprint, ResponseEntity<?> response) {
+    }
+
+    private final Cache<String, Entry> entries;
+    private final ParkingMetrics metrics;
+
+    public IdempotencyStore(ParkingMetrics metrics,
+            @Value("${idempotency.max-size:10000}") long maxSize,
+            @Value("${idempotency.ttl-seconds:86400}") long ttlSeconds) {
+        this.metrics = metrics;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    // Runs the request once per key, requests without a key always run
+    public ResponseEntity<?> execute(String key, Principal caller, String operation, String fingerprint,
+            Supplier<ResponseEntity<?>> request) {
+        if (key == null) {
+            return request.get();
+        }
+        key = key.trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new ValidationException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String cacheKey = operation + ":" + (caller == null ? "" : caller.getName()) + ":" + key;
+        Entry running = new Entry(fingerprint, null);
+        Entry existing = entries.asMap().putIfAbsent(cacheKey, running);
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+
+        ResponseEntity<?> response = null;
+        try {
+            response = request.get();
+        } finally {
+            if (response != null && response.getStatusCode().is2xxSuccessful()) {
+                entries.put(cacheKey, new Entry(fingerprint, response));
+                metrics.idempotency("stored");
+            } else {
+                entries.asMap().remove(cacheKey, running);
+            }
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> replay(Entry existing, String fingerprint) {
+        if (!existing.fingerprint().equals(fingerprint)) {
+            metrics.idempotency("mismatch");
+            throw new ValidationException(HEADER + " was already used for a different request");
+        }
+        if (existing.response() == null) {
+            metrics.idempotency("in-progress");
+            throw new DuplicateResourceException("A request with this " + HEADER
+                    + " is still being processed, retry shortly");
+        }
+        metrics.idempotency("replayed");
+        ResponseEntity<?> response = existing.response();
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+}
@@ -0,0 +1,187 @@
+package com.quickpark.parkinglot.service;
+
+import com.quickpark.parkinglot.entities.DisplayBoard;
+import com.quickpark.parkinglot.response.DisplayResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Pushes occupancy to the lobby screens over Server-Sent Events instead of having every screen poll /status.
+ * Park, unpark and admin activation changes only bump the DisplayBoard counters; this broadcaster
+ * looks at the board a fixed number of times per second and, when something moved, hands one
+ * DisplayResponse to all subscribers. A burst of changes in between is coalesced into one event,
+ * so each subscriber gets at most parking.status.stream.max-updates-per-second events (1 to 1000).
+ * The tick is registered with the shared scheduler here rather than by @Scheduled, so its period is
+ * computed and checked once in the constructor.
+ *
+ * The writes happen on a small pool of sender threads (parking.status.stream.sender-threads), never on
+ * the scheduler thread. Each subscriber has at most one send in flight and only keeps the latest
+ * occupancy it has not been sent yet, so a slow screen skips states instead of queueing them.
+ * A subscriber whose send has been stuck for parking.status.stream.send-timeout-ms (a half-open
+ * connection) is dropped on the next tick, and so is one that finds the pool's queue full.
+ */
+@Service
+public class OccupancyBroadcaster implements SchedulingConfigurer {
+
+    private final IParkingService parkingService;
+    private final DisplayBoard displayBoard = DisplayBoard.getInstance();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor senders;
+    private final long sendTimeoutNanos;
+    private final Duration broadcastPeriod;
+    private long lastBroadcastChangeCount = -1;
+
+    // 0 keeps the connection open until the client goes away
+    @Value("${parking.status.stream.timeout-ms:0}")
+    private long timeoutMs;
+
+    public OccupancyBroadcaster(IParkingService parkingService,
+            @Value("${parking.status.stream.max-updates-per-second:4}") int maxUpdatesPerSecond,
+            @Value("${parking.status.stream.sender-threads:4}") int senderThreads,
+            @Value("${parking.status.stream.send-timeout-ms:5000}") long sendTimeoutMs,
+            @Value("${parking.status.stream.max-subscribers:10000}") int maxSubscribers) {
+        this.parkingService = parkingService;
+        if (maxUpdatesPerSecond < 1 || maxUpdatesPerSecond > 1000) {
+            throw new IllegalStateException("parking.status.stream.max-updates-per-second must be between 1 and 1000, "
+                    + "was " + maxUpdatesPerSecond);
+        }
+        this.broadcastPeriod = Duration.ofMillis(1000 / maxUpdatesPerSecond);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("OccupancyStream-");
+        threadFactory.setDaemon(true);
+        // One queued drain per subscriber at most, so the queue only fills up past max-subscribers
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxSubscribers), threadFactory);
+    }
+
+    // One screen, the latest occupancy it has not been sent yet stays in pending until its send is done
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final AtomicReference<DisplayResponse> pending = new AtomicReference<>();
+        // System.nanoTime() when the current send started, 0 when idle
+        volatile long sendingSince;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(DisplayResponse occupancy) {
+            // A drain is only started when none is running, a running one picks the newer state up
+            if (pending.getAndSet(occupancy) != null) {
+                return;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close(null);
+            }
+        }
+
+        private void drain() {
+            DisplayResponse occupancy = pending.get();
+            while (!closed) {
+                sendingSince = System.nanoTime();
+                try {
+                    emitter.send(SseEmitter.event().name("occupancy").data(occupancy));
+                } catch (IOException | IllegalStateException e) {
+                    // Client disconnected, drop it
+                    close(e);
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+                if (pending.compareAndSet(occupancy, null)) {
+                    return;
+                }
+                occupancy = pending.get();
+            }
+        }
+
+        boolean stuck(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > sendTimeoutNanos;
+        }
+
+        void close(Exception error) {
+            closed = true;
+            subscribers.remove(this);
+            if (error == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(error);
+            }
+        }
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // New screens get the current state straight away, the stream only carries changes
+        subscriber.offer(parkingService.getFreeParkingSpots());
+        return emitter;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedRateTask(this::broadcastChanges, broadcastPeriod);
+    }
+
+    Duration broadcastPeriod() {
+        return broadcastPeriod;
+    }
+
+    public void broadcastChanges() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.stuck(now)) {
+                subscriber.close(null);
+            }
+        }
+        long changeCount = displayBoard.getChangeCount();
+        if (changeCount == lastBroadcastChangeCount) {
+            return;
+        }
+        // Tracked even without subscribers, new ones already got the current state on connect
+        lastBroadcastChangeCount = changeCount;
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        DisplayResponse occupancy = parkingService.getFreeParkingSpots();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(occupancy);
+        }
+    }
+
+    // Subscribers currently connected
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+    }
+}
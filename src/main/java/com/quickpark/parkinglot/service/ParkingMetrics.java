@@ -0,0 +1,184 @@
+package com.quickpark.parkinglot.service;
+
+import com.quickpark.parkinglot.entities.DisplayBoard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ * Micrometer meters of the service layer, scraped from /actuator/prometheus.
+ * Meter names live here so the services only say what happened.
+ *
+ * quickpark.park / quickpark.unpark        latency by type and outcome
+ * quickpark.unpark.transaction             time the unpark transaction holds its row locks
+ * quickpark.spot.claim.retries             @Version conflicts retried, by operation
+ * quickpark.spot.claim.failures            park requests that got no spot, by type and reason
+ * quickpark.gate.pool.claims               gate park requests served from the gate's own pool (hit) or not (miss)
+ * quickpark.reservations                   reservations by outcome (created, fulfilled, moved, cancelled, expired)
+ * quickpark.idempotency                    Idempotency-Key lookups (stored, replayed, in-progress, mismatch)
+ * quickpark.rate.limited                   requests refused with 429, by endpoint and key (user, ip, account)
+ * quickpark.rollback                       compensations after a failed park/unpark, by outcome
+ * quickpark.signin / quickpark.password.hash   signin latency and the BCrypt share of it
+ * quickpark.admin                          admin operation latency
+ * quickpark.spots.free                     free spots per type, read from the display board
+ * quickpark.email.outbox.depth             emails waiting in the outbox
+ * quickpark.email.sent / .failed           outbox deliveries, failures by whether they will be retried
+ */
+@Component
+public class ParkingMetrics {
+
+    private final MeterRegistry registry;
+    private final AtomicLong emailOutboxDepth = new AtomicLong();
+
+    public ParkingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        DisplayBoard displayBoard = DisplayBoard.getInstance();
+        Gauge.builder("quickpark.spots.free", displayBoard, DisplayBoard::getFreeMiniParkingSpots)
+                .tag("type", "mini").register(registry);
+        Gauge.builder("quickpark.spots.free", displayBoard, DisplayBoard::getFreeCompactParkingSpots)
+                .tag("type", "compact").register(registry);
+        Gauge.builder("quickpark.spots.free", displayBoard, DisplayBoard::getFreeLargeParkingSpots)
+                .tag("type", "large").register(registry);
+        Gauge.builder("quickpark.email.outbox.depth", emailOutboxDepth, AtomicLong::get)
+                .description("Emails waiting in the outbox").register(registry);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    public void parkCompleted(Timer.Sample sample, String type, boolean success) {
+        sample.stop(Timer.builder("quickpark.park")
+                .description("Park request latency")
+                .tag("type", type == null ? "unknown" : type)
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry));
+    }
+
+    public void unparkCompleted(Timer.Sample sample, boolean success) {
+        sample.stop(Timer.builder("quickpark.unpark")
+                .description("Unpark request latency")
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry));
+    }
+
+    // First statement to commit of the unpark transaction
+    public Timer unparkTransactionTimer() {
+        return Timer.builder("quickpark.unpark.transaction")
+                .description("Unpark transaction time, i.e. how long it holds its row locks")
+                .register(registry);
+    }
+
+    public void signinCompleted(Timer.Sample sample, boolean success) {
+        sample.stop(Timer.builder("quickpark.signin")
+                .description("Signin latency including the password check")
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry));
+    }
+
+    public void adminOperationCompleted(Timer.Sample sample, String operation) {
+        sample.stop(Timer.builder("quickpark.admin")
+                .description("Admin operation latency")
+                .tag("operation", operation)
+                .register(registry));
+    }
+
+    // BCrypt is deliberately slow, time it on its own to see how much of signin it takes
+    public <T> T timePasswordHash(String operation, Supplier<T> hashing) {
+        return Timer.builder("quickpark.password.hash")
+                .description("BCrypt encode/match time")
+                .tag("operation", operation)
+                .register(registry)
+                .record(hashing);
+    }
+
+    public void claimRetried(String operation) {
+        retryCounter(operation).increment();
+    }
+
+    public long getClaimRetryCount(String operation) {
+        return (long) retryCounter(operation).count();
+    }
+
+    public void claimFailed(String type, String reason) {
+        Counter.builder("quickpark.spot.claim.failures")
+                .description("Park requests that could not claim a spot")
+                .tag("type", type)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void gatePoolClaim(boolean hit) {
+        Counter.builder("quickpark.gate.pool.claims")
+                .description("Park requests with a gate id, by whether the gate's reserved spots served them")
+                .tag("result", hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+
+    public void reservation(String outcome) {
+        Counter.builder("quickpark.reservations")
+                .description("Reservations by outcome, moved = parked on another spot than the reserved one")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void idempotency(String outcome) {
+        Counter.builder("quickpark.idempotency")
+                .description("Requests with an Idempotency-Key, replayed = answered from the store")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void rateLimited(String endpoint, String key) {
+        Counter.builder("quickpark.rate.limited")
+                .description("Requests refused by the rate limiter")
+                .tag("endpoint", endpoint)
+                .tag("key", key)
+                .register(registry)
+                .increment();
+    }
+
+    public void rollback(String operation, boolean success) {
+        Counter.builder("quickpark.rollback")
+                .description("Compensating rollbacks after a failed park/unpark")
+                .tag("operation", operation)
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .increment();
+    }
+
+    public void emailOutboxDepth(long depth) {
+        emailOutboxDepth.set(depth);
+    }
+
+    public void emailsSent(int count) {
+        Counter.builder("quickpark.email.sent")
+                .description("Emails delivered from the outbox")
+                .register(registry)
+                .increment(count);
+    }
+
+    public void emailFailed(boolean gaveUp) {
+        Counter.builder("quickpark.email.failed")
+                .description("Failed email deliveries")
+                .tag("outcome", gaveUp ? "given_up" : "retry")
+                .register(registry)
+                .increment();
+    }
+
+    private Counter retryCounter(String operation) {
+        return Counter.builder("quickpark.spot.claim.retries")
+                .description("Spot claims retried after a conflict (optimistic lock, or every free row locked)")
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -4,20 +4,21 @@ import com.quickpark.parkinglot.entities.DisplayBoard;
 import com.quickpark.parkinglot.entities.ParkingSpot;
 import com.quickpark.parkinglot.entities.UnparkedTicket;
 import com.quickpark.parkinglot.entities.ParkedTicket;
+import com.quickpark.parkinglot.entities.Reservation;
 import com.quickpark.parkinglot.response.DisplayResponse;
+import com.quickpark.parkinglot.request.ParkRequest;
 import com.quickpark.parkinglot.Exceptions.ParkingLotException;
 
 import com.quickpark.parkinglot.repository.ParkedTicketRepository;
-import com.quickpark.parkinglot.repository.UnparkedTicketRepository;
-import com.quickpark.parkinglot.repository.UserRepository;
 import com.quickpark.parkinglot.repository.ParkingSpotRepository;
 import com.quickpark.parkinglot.entities.User;
 import org.springframework.stereotype.Service;
-import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+import io.micrometer.core.instrument.Timer;
 
 import java.time.temporal.ChronoUnit;
 import java.time.LocalDateTime;
-import java.util.Map;
 
 @Service
 public class ParkingService implements IParkingService {
@@ -25,74 +26,56 @@ public class ParkingService implements IParkingService {
     DisplayBoard displayBoard;
     private final ParkingSpotRepository parkingSpotRepository;
     private final ParkedTicketRepository parkedTicketRepository;
-    private final UnparkedTicketRepository unparkedTicketRepository;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
     private final Validation validation;
+    private final SpotAllocator spotAllocator;
+    private final ParkingMetrics metrics;
+    private final RevenueRollupService revenueRollupService;
+    private final ReservationService reservationService;
+    private final TransactionTemplate transactionTemplate;
 
     public ParkingService(ParkingSpotRepository parkingSpotRepository, ParkedTicketRepository parkedTicketRepository,
-            UnparkedTicketRepository unparkedTicketRepository, UserRepository userRepository, Validation validation) {
+            UserCache userCache, Validation validation, SpotAllocator spotAllocator, ParkingMetrics metrics,
+            RevenueRollupService revenueRollupService, ReservationService reservationService,
+            TransactionTemplate transactionTemplate) {
         this.displayBoard = DisplayBoard.getInstance();
+        this.transactionTemplate = transactionTemplate;
+        this.reservationService = reservationService;
+        this.metrics = metrics;
+        this.revenueRollupService = revenueRollupService;
         this.parkingSpotRepository = parkingSpotRepository;
         this.validation = validation;
+        this.spotAllocator = spotAllocator;
         this.parkedTicketRepository = parkedTicketRepository;
-        this.unparkedTicketRepository = unparkedTicketRepository;
-        this.userRepository = userRepository;
-        updateDisplayBoardFromDatabase();
+        this.userCache = userCache;
         System.out.println("");
         System.out.println("MySQL Database is connected");
         System.out.println("");
     }
 
-    private void updateDisplayBoardFromDatabase() {
-        // Update display board with counts from database
-        long freeMini = parkingSpotRepository.countByTypeAndIsBooked("mini", false);
-        long bookedMini = parkingSpotRepository.countByTypeAndIsBooked("mini", true);
-        long freeCompact = parkingSpotRepository.countByTypeAndIsBooked("compact", false);
-        long bookedCompact = parkingSpotRepository.countByTypeAndIsBooked("compact", true);
-        long freeLarge = parkingSpotRepository.countByTypeAndIsBooked("large", false);
-        long bookedLarge = parkingSpotRepository.countByTypeAndIsBooked("large", true);
-
-        displayBoard.setFreeMiniParkingSpots((int) freeMini);
-        displayBoard.setFreeCompactParkingSpots((int) freeCompact);
-        displayBoard.setFreeLargeParkingSpots((int) freeLarge);
-        displayBoard.setBookedMiniParkingSpots((int) bookedMini);
-        displayBoard.setBookedCompactParkingSpots((int) bookedCompact);
-        displayBoard.setBookedLargeParkingSpots((int) bookedLarge);
-    }
-
     @Override
     public DisplayResponse getFreeParkingSpots() {
+        // Served from the in-memory counters, no database round trip
         DisplayResponse displayResponse = new DisplayResponse();
-        displayResponse.freeMini = (int) parkingSpotRepository.countByTypeAndIsBooked("mini", false);
-        displayResponse.freeLarge = (int) parkingSpotRepository.countByTypeAndIsBooked("large", false);
-        displayResponse.freeCompact = (int) parkingSpotRepository.countByTypeAndIsBooked("compact", false);
-        displayResponse.bookedMini = (int) parkingSpotRepository.countByTypeAndIsBooked("mini", true);
-        displayResponse.bookedLarge = (int) parkingSpotRepository.countByTypeAndIsBooked("large", true);
-        displayResponse.bookedCompact = (int) parkingSpotRepository.countByTypeAndIsBooked("compact", true);
+        displayResponse.freeMini = displayBoard.getFreeMiniParkingSpots();
+        displayResponse.freeLarge = displayBoard.getFreeLargeParkingSpots();
+        displayResponse.freeCompact = displayBoard.getFreeCompactParkingSpots();
+        displayResponse.bookedMini = displayBoard.getBookedMiniParkingSpots();
+        displayResponse.bookedLarge = displayBoard.getBookedLargeParkingSpots();
+        displayResponse.bookedCompact = displayBoard.getBookedCompactParkingSpots();
         return displayResponse;
     }
 
     @Override
-    public ParkedTicket ParkVehicle(Map<String, String> requestBody) {
+    public ParkedTicket ParkVehicle(String email, ParkRequest request) {
+        Timer.Sample sample = metrics.startTimer();
+        String metricType = "invalid"; // only valid types become tag values
+        boolean success = false;
         try {
-            // Trim all the trailing and leading spaces
-            String email = requestBody.get("email");
-            String type = requestBody.get("type");
-            String vehicleModel = requestBody.get("vehicleModel");
-            String vehicleNo = requestBody.get("vehicleNo");
-            if (email != null) {
-                email = email.trim();
-            }
-            if (type != null) {
-                type = type.trim();
-            }
-            if (vehicleNo != null) {
-                vehicleNo = vehicleNo.trim();
-            }
-            if (vehicleModel != null) {
-                vehicleModel = vehicleModel.trim();
-            }
-            final String finalType = type; // Make it effectively final for lambda
+            // The record has already trimmed the fields
+            final String finalType = request.type();
+            String vehicleNo = request.vehicleNo();
+            String vehicleModel = request.vehicleModel();
             if (vehicleModel == null) {
                 // Based on type set it as default model name
                 vehicleModel = getDefaultVehicleModel(finalType);
@@ -107,6 +90,7 @@ public class ParkingService implements IParkingService {
             if (!validation.isValidVehicleType(finalType)) {
                 throw new ParkingLotException("Invalid vehicle type. Allowed types are: mini, large, compact.");
             }
+            metricType = finalType;
             if (vehicleNo == null || vehicleNo.isEmpty()) {
                 throw new ParkingLotException("Vehicle number is required for parking.");
             }
@@ -114,60 +98,26 @@ public class ParkingService implements IParkingService {
                 throw new ParkingLotException("Invalid vehicle number format.");
             }
 
-            User user = userRepository.findByEmail(email);
+            // Only the name and contact are copied into the ticket, a cached copy is enough
+            User user = userCache.findByEmail(email);
             if (user == null) {
                 throw new ParkingLotException("User with email " + email + " does not exist.");
             }
 
-            // Try to find and book a parking spot with retry logic for concurrency
-            ParkingSpot freeParkingSpot = null;
-            int maxRetries = 5;
-            int attempt = 0;
-
-            while (attempt < maxRetries && freeParkingSpot == null) {
-                try {
-                    // Check if vehicle is already parked (inside retry loop to avoid race
-                    // condition)
-                    if (parkedTicketRepository.existsByVehicleNo(vehicleNo)) {
-                        throw new ParkingLotException("Vehicle with number " + vehicleNo + " is already parked.");
-                    }
-
-                    // Find first available spot from database
-                    freeParkingSpot = parkingSpotRepository
-                            .findFirstByTypeAndIsBooked(finalType, false)
-                            .orElseThrow(() -> new ParkingLotException(
-                                    "No free parking spots available for type: " + finalType));
-
-                    // Book the spot
-                    freeParkingSpot.setBooked(true);
-                    freeParkingSpot.setUpdatedAt(LocalDateTime.now());
-                    parkingSpotRepository.save(freeParkingSpot); // This might throw OptimisticLockingFailureException
-
-                } catch (OptimisticLockingFailureException e) {
-                    // Another user booked this spot, retry with another spot
-                    freeParkingSpot = null;
-                    attempt++;
-                    if (attempt >= maxRetries) {
-                        throw new ParkingLotException(
-                                "Unable to book parking spot due to high demand. Please try again.");
-                    }
-                    // Small delay before retry to reduce contention
-                    try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new ParkingLotException("Parking operation was interrupted. Please try again.");
-                    }
-                }
+            if (parkedTicketRepository.existsByVehicleNo(vehicleNo)) {
+                throw new ParkingLotException("Vehicle with number " + vehicleNo + " is already parked.");
             }
 
+            // A vehicle arriving for its reservation gets the held spot, unless a walk-in is still on it
+            Reservation reservation = reservationService.findArrival(email, vehicleNo, finalType);
+            ParkingSpot freeParkingSpot = reservation == null ? null
+                    : spotAllocator.claimHeld(Long.parseLong(reservation.getParkingSpot().getId()));
+            boolean onReservedSpot = freeParkingSpot != null;
             if (freeParkingSpot == null) {
-                throw new ParkingLotException("No free parking spots available for type: " + finalType);
+                // Claim a free spot, the allocator hands every caller a distinct spot (near the gate when given)
+                freeParkingSpot = spotAllocator.claim(finalType, request.gateId());
             }
 
-            // Update display board
-            updateDisplayBoardFromDatabase();
-
             // Create and save the parked ticket (ID will be auto-generated by database)
             ParkedTicket parkedTicket = new ParkedTicket(
                     null, // ID will be auto-generated
@@ -185,22 +135,34 @@ public class ParkingService implements IParkingService {
             } catch (Exception e) {
                 // Rollback: Free the parking spot if ticket creation fails
                 try {
-                    freeParkingSpot.setBooked(false);
-                    freeParkingSpot.setUpdatedAt(LocalDateTime.now());
-                    parkingSpotRepository.save(freeParkingSpot);
-                    updateDisplayBoardFromDatabase();
-                } catch (OptimisticLockingFailureException ole) {
-                    System.err.println(
-                            "Warning: Failed to rollback parking spot after ticket save failure: " + ole.getMessage());
+                    spotAllocator.unclaim(freeParkingSpot);
+                    metrics.rollback("park", true);
+                } catch (Exception rollbackException) {
+                    metrics.rollback("park", false);
+                    System.err.println("Warning: Failed to rollback parking spot after ticket save failure: "
+                            + rollbackException.getMessage());
                 }
                 throw new ParkingLotException("Failed to create parking ticket: " + e.getMessage());
             }
 
+            if (reservation != null) {
+                // The vehicle is parked either way
+                try {
+                    reservationService.fulfil(reservation, onReservedSpot);
+                } catch (Exception e) {
+                    System.err.println("Failed to mark reservation " + reservation.getId() + " as fulfilled: "
+                            + e.getMessage());
+                }
+            }
+
+            success = true;
             return parkedTicket;
         } catch (ParkingLotException e) {
             throw e;
         } catch (Exception e) {
             throw new ParkingLotException("Unexpected error during parking: " + e.getMessage());
+        } finally {
+            metrics.parkCompleted(sample, metricType, success);
         }
     }
 
@@ -219,6 +181,8 @@ public class ParkingService implements IParkingService {
 
     @Override
     public UnparkedTicket UnparkVehicle(String ParkingTicketId, String userEmail) {
+        Timer.Sample sample = metrics.startTimer();
+        boolean unparked = false;
         try {
             if (ParkingTicketId != null) {
                 ParkingTicketId = ParkingTicketId.trim();
@@ -250,102 +214,64 @@ public class ParkingService implements IParkingService {
             long totalTime = countTimeInMinutes(parkedTicket.getEntryTime());
             long totalCost = calculateCost(parkedTicket, totalTime);
 
-            // Get the parking spot location before deletion
-            String parkingSpotLocation = parkedTicket.getParkingSpot().getLocation();
+            ParkingSpot parkingSpot = parkedTicket.getParkingSpot();
+            LocalDateTime exitTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
 
             // Create unparked ticket with embedded parking spot info
             UnparkedTicket unparkedTicket = new UnparkedTicket(
-                    ticketIdLong, // Use the Long ID
+                    ticketIdLong, // The ticket keeps its id in the history
                     parkedTicket.getFirstName(),
                     parkedTicket.getLastName(),
                     parkedTicket.getEmail(),
                     parkedTicket.getOwnerContact(),
                     parkedTicket.getEntryTime(),
-                    LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS),
+                    exitTime,
                     totalTime,
                     totalCost,
                     parkedTicket.getVehicleNo(),
                     parkedTicket.getVehicleModel(),
-                    parkedTicket.getParkingSpot());
-
-            // Unpark with retry logic for race condition handling
-            int maxRetries = 5;
-            int attempt = 0;
-            boolean success = false;
-
-            while (attempt < maxRetries && !success) {
-                try {
-                    // Step 1: Save unparked ticket first (to ensure history is captured)
-                    unparkedTicketRepository.save(unparkedTicket);
-
-                    // Step 2: Delete parked ticket
-                    parkedTicketRepository.delete(parkedTicket);
-
-                    // Step 3: Free the parking spot in database with optimistic locking
-                    ParkingSpot parkingSpot = parkingSpotRepository.findByLocation(parkingSpotLocation);
-                    if (parkingSpot == null) {
-                        throw new ParkingLotException("Parking spot not found: " + parkingSpotLocation);
-                    }
-                    parkingSpot.setBooked(false);
-                    parkingSpot.setUpdatedAt(LocalDateTime.now());
-                    parkingSpotRepository.save(parkingSpot); // May throw OptimisticLockingFailureException
-
-                    success = true;
-
-                } catch (OptimisticLockingFailureException e) {
-                    // Concurrent modification on parking spot, retry
-                    attempt++;
-                    if (attempt >= maxRetries) {
-                        // Rollback: Try to restore parked ticket and delete unparked ticket
-                        try {
-                            unparkedTicketRepository.delete(unparkedTicket);
-                            parkedTicketRepository.save(parkedTicket);
-                        } catch (Exception rollbackException) {
-                            System.err.println(
-                                    "CRITICAL: Failed to rollback unpark operation for ticket " + ParkingTicketId
-                                            + ": " + rollbackException.getMessage());
-                        }
-                        throw new ParkingLotException(
-                                "Unable to complete unpark operation due to high system load. Please try again.");
-                    }
-
-                    // Small delay before retry
-                    try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new ParkingLotException("Unpark operation was interrupted. Please try again.");
-                    }
-
-                } catch (Exception e) {
-                    // Other exception occurred, try to rollback
-                    try {
-                        unparkedTicketRepository.delete(unparkedTicket);
-                        // Don't restore parked ticket if it was already deleted
-                        if (!parkedTicketRepository.existsById(ticketIdLong)) {
-                            parkedTicketRepository.save(parkedTicket);
-                        }
-                    } catch (Exception rollbackException) {
-                        System.err.println("CRITICAL: Failed to rollback unpark operation for ticket " + ParkingTicketId
-                                + ": " + rollbackException.getMessage());
+                    parkingSpot);
+
+            /*
+             * One short transaction: move the ticket into the history (INSERT ... SELECT, DELETE), free
+             * the spot if it is booked and add the ticket to its revenue rollup buckets. Nothing is read in it,
+             * so its row locks are held for five statements. The rollups commit with the history row or not at
+             * all, so they never miss a ticket.
+             * A concurrent unpark of the same ticket deletes nothing (or hits the history key) and rolls back.
+             */
+            boolean spotFreed;
+            try {
+                spotFreed = metrics.unparkTransactionTimer().record(() -> transactionTemplate.execute(status -> {
+                    if (parkedTicketRepository.copyToHistory(ticketIdLong, exitTime, totalTime, totalCost) == 0
+                            || parkedTicketRepository.deleteTicket(ticketIdLong) == 0) {
+                        throw new ParkingLotException("Invalid ticket ID or the vehicle is already unparked");
                     }
-                    throw new ParkingLotException("Error occurred while unparking vehicle: " + e.getMessage());
-                }
+                    boolean freed = parkingSpotRepository.markFreeIfBooked(Long.parseLong(parkingSpot.getId()),
+                            exitTime) == 1;
+                    revenueRollupService.record(unparkedTicket);
+                    return freed;
+                }));
+            } catch (DataIntegrityViolationException e) {
+                throw new ParkingLotException("Invalid ticket ID or the vehicle is already unparked");
             }
 
-            if (!success) {
-                throw new ParkingLotException("Failed to complete unpark operation after multiple attempts.");
+            // Committed, make the spot bookable again
+            if (spotFreed) {
+                spotAllocator.release(parkingSpot);
+            } else {
+                System.err.println("Spot " + parkingSpot.getLocation() + " of ticket " + ParkingTicketId
+                        + " was not booked, left to the next occupancy reconcile");
             }
 
-            // Update display board
-            updateDisplayBoardFromDatabase();
-
+            unparked = true;
             return unparkedTicket;
 
         } catch (ParkingLotException e) {
             throw e;
         } catch (Exception e) {
             throw new ParkingLotException("Unexpected error occurred while unparking vehicle: " + e.getMessage());
+        } finally {
+            metrics.unparkCompleted(sample, unparked);
         }
     }
 
@@ -0,0 +1,126 @@
+package com.quickpark.parkinglot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quickpark.parkinglot.Exceptions.RateLimitExceededException;
+import com.quickpark.parkinglot.config.RateLimitProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+ * Token buckets per endpoint and caller, configured by RateLimitProperties.
+ *
+ * Each bucket is a single AtomicLong: the time at which it will be full again (GCRA, the token bucket
+ * written as a timestamp). A request moves that time one refill interval forward with a CAS, and is
+ * refused when it would end up more than capacity intervals ahead of now, so taking a token never locks.
+ * Buckets are kept in a bounded Caffeine map and dropped after an hour without requests, by then
+ * they are full anyway. RateLimitFilter limits by JWT subject (client IP when not signed in), the
+ * controllers of per-account endpoints also call checkAccount with the email from the body.
+ */
+@Component
+public class RateLimiter {
+
+    private final Map<String, Limit> limitsByPath = new HashMap<>();
+    private final Map<String, Limit> limitsByName = new HashMap<>();
+    private final Cache<String, Bucket> buckets;
+    private final LongSupplier clock;
+    private final ParkingMetrics metrics;
+    private final boolean enabled;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, ParkingMetrics metrics) {
+        this(properties, metrics, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, ParkingMetrics metrics, LongSupplier clock) {
+        this.metrics = metrics;
+        this.clock = clock;
+        this.enabled = properties.enabled();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxKeys())
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+        for (Map.Entry<String, RateLimitProperties.Budget> entry : properties.endpoints().entrySet()) {
+            RateLimitProperties.Budget budget = entry.getValue();
+            if (budget.path() == null || budget.capacity() < 1 || budget.refillPerMinute() < 1) {
+                throw new IllegalStateException("rate-limit.endpoints." + entry.getKey()
+                        + " needs a path, a capacity and a refill-per-minute of at least 1");
+            }
+            Limit limit = new Limit(entry.getKey(), budget.capacity(),
+                    TimeUnit.MINUTES.toNanos(1) / budget.refillPerMinute(), budget.perAccount());
+            limitsByPath.put(budget.path(), limit);
+            limitsByName.put(entry.getKey(), limit);
+        }
+    }
+
+    private record Limit(String name, int capacity, long interval, boolean perAccount) {
+    }
+
+    private static final class Bucket {
+        private final AtomicLong fullAt;
+
+        Bucket(long now) {
+            fullAt = new AtomicLong(now);
+        }
+
+        // 0 when a token was taken, otherwise the nanoseconds until one is available
+        long tryTake(Limit limit, long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + limit.interval();
+                long wait = next - now - limit.capacity() * limit.interval();
+                if (wait > 0) {
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    // The endpoint name limiting this path, null when it is not limited
+    public String endpointFor(String path) {
+        if (!enabled) {
+            return null;
+        }
+        Limit limit = limitsByPath.get(path);
+        return limit == null ? null : limit.name();
+    }
+
+    // 0 when the request may go ahead, otherwise the seconds to wait (Retry-After)
+    public long acquire(String endpoint, String key) {
+        Limit limit = limitsByName.get(endpoint);
+        if (!enabled || limit == null) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        long wait = buckets.get(endpoint + ":" + key, k -> new Bucket(now)).tryTake(limit, now);
+        if (wait == 0) {
+            return 0;
+        }
+        int scope = key.indexOf(':');
+        metrics.rateLimited(endpoint, scope < 0 ? "other" : key.substring(0, scope));
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    // The per-account budget of endpoints with per-account=true, keyed by the email the request is for
+    public void checkAccount(String endpoint, String email) {
+        Limit limit = limitsByName.get(endpoint);
+        if (limit == null || !limit.perAccount() || email == null || email.isBlank()) {
+            return;
+        }
+        long retryAfter = acquire(endpoint, "account:" + email.trim().toLowerCase());
+        if (retryAfter > 0) {
+            throw new RateLimitExceededException("Too many " + endpoint + " attempts for this account, retry in "
+                    + retryAfter + " seconds", retryAfter);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.quickpark.parkinglot.service;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/*
+ * Reserved time windows of every spot, kept in memory by ReservationService.
+ *
+ * Each spot has a calendar: a TreeMap of its reserved windows keyed by start time. Windows of one spot
+ * never overlap, so they are also in end time order, and [start, end) is free exactly when the last
+ * window starting before end has ended by start. That is one lowerEntry, O(log k) for k windows.
+ *
+ * To find any spot of a type free for a window, the free time between the windows of the type's active
+ * spots is indexed too: every gap [gapStart, gapEnd) of every spot (unbounded before the first window
+ * and after the last) sits in a GapTree ordered by gapStart, where each node knows the latest gapEnd
+ * below it. A spot is free for [start, end) when one of its gaps has gapStart <= start and gapEnd >= end,
+ * and the tree finds the first such gap in O(log g) for g gaps, however many spots are reserved.
+ * Booking splits the gap it lands in, releasing joins the gaps around the window again.
+ *
+ * Everything of one type changes under that type's lock, so two callers can never book overlapping
+ * windows on the same spot. Windows are half open, back to back reservations don't collide.
+ */
+final class ReservationIndex {
+
+    // Bounds of the gaps before the first and after the last window of a spot
+    private static final LocalDateTime OPEN_START = LocalDateTime.MIN;
+    private static final LocalDateTime OPEN_END = LocalDateTime.MAX;
+
+    // The spots of one type, also the lock for their calendars
+    private static final class TypeIndex {
+        // Spots that take new reservations (active), only their gaps are in the tree
+        final Set<Long> active = new HashSet<>();
+        final GapTree gaps = new GapTree();
+    }
+
+    // spot id -> start -> end
+    private final Map<Long, TreeMap<LocalDateTime, LocalDateTime>> calendars = new ConcurrentHashMap<>();
+    private final Map<String, TypeIndex> types = new ConcurrentHashMap<>();
+    private final Map<Long, String> spotTypes = new ConcurrentHashMap<>();
+
+    void addSpot(long spotId, String type) {
+        spotTypes.put(spotId, type);
+        TypeIndex index = type(type);
+        synchronized (index) {
+            if (index.active.add(spotId)) {
+                forEachGap(calendar(spotId), (start, end) -> index.gaps.insert(start, spotId, end));
+            }
+        }
+    }
+
+    // The spot takes no new reservations, the ones it has stay
+    void removeSpot(long spotId) {
+        String type = spotTypes.get(spotId);
+        if (type == null) {
+            return;
+        }
+        TypeIndex index = type(type);
+        synchronized (index) {
+            if (index.active.remove(spotId)) {
+                forEachGap(calendar(spotId), (start, end) -> index.gaps.remove(start, spotId));
+            }
+        }
+    }
+
+    // Puts back a window that is already stored, spot availability is not checked
+    void restore(long spotId, String type, LocalDateTime start, LocalDateTime end) {
+        spotTypes.putIfAbsent(spotId, type);
+        TypeIndex index = type(type);
+        synchronized (index) {
+            TreeMap<LocalDateTime, LocalDateTime> calendar = calendar(spotId);
+            if (!index.active.contains(spotId)) {
+                calendar.put(start, end);
+            } else if (isFree(calendar, start, end)) {
+                take(index, spotId, calendar, start, end);
+            } else {
+                // Overlaps a stored window, rebuild the spot's gaps around both
+                forEachGap(calendar, (gapStart, gapEnd) -> index.gaps.remove(gapStart, spotId));
+                calendar.put(start, end);
+                forEachGap(calendar, (gapStart, gapEnd) -> index.gaps.insert(gapStart, spotId, gapEnd));
+            }
+        }
+    }
+
+    // Books [start, end) on the first free spot of the type, returns its id or null when none is free
+    Long bookAny(String type, LocalDateTime start, LocalDateTime end) {
+        TypeIndex index = type(type);
+        synchronized (index) {
+            Long spotId = index.gaps.findCovering(start, end);
+            if (spotId != null) {
+                take(index, spotId, calendar(spotId), start, end);
+            }
+            return spotId;
+        }
+    }
+
+    // Like bookAny without booking, the answer may be stale by the time the caller books
+    boolean anyFree(String type, LocalDateTime start, LocalDateTime end) {
+        TypeIndex index = type(type);
+        synchronized (index) {
+            return index.gaps.findCovering(start, end) != null;
+        }
+    }
+
+    boolean book(long spotId, LocalDateTime start, LocalDateTime end) {
+        String type = spotTypes.get(spotId);
+        if (type == null) {
+            return false;
+        }
+        TypeIndex index = type(type);
+        synchronized (index) {
+            TreeMap<LocalDateTime, LocalDateTime> calendar = calendar(spotId);
+            // Deactivated in the meantime, or taken by another caller
+            if (!index.active.contains(spotId) || !isFree(calendar, start, end)) {
+                return false;
+            }
+            take(index, spotId, calendar, start, end);
+            return true;
+        }
+    }
+
+    void release(long spotId, LocalDateTime start) {
+        String type = spotTypes.get(spotId);
+        TreeMap<LocalDateTime, LocalDateTime> calendar = calendars.get(spotId);
+        if (type == null || calendar == null) {
+            return;
+        }
+        TypeIndex index = type(type);
+        synchronized (index) {
+            LocalDateTime end = calendar.remove(start);
+            if (end != null) {
+                giveBack(index, spotId, calendar, start, end);
+            }
+        }
+    }
+
+    // Drops the windows that ended at or before the time, returns how many
+    int pruneEndedBy(LocalDateTime time) {
+        int pruned = 0;
+        for (Map.Entry<Long, TreeMap<LocalDateTime, LocalDateTime>> entry : calendars.entrySet()) {
+            long spotId = entry.getKey();
+            TreeMap<LocalDateTime, LocalDateTime> calendar = entry.getValue();
+            TypeIndex index = type(spotTypes.get(spotId));
+            synchronized (index) {
+                // In end time order too, so the ended windows are at the front
+                Map.Entry<LocalDateTime, LocalDateTime> first;
+                while ((first = calendar.firstEntry()) != null && !first.getValue().isAfter(time)) {
+                    calendar.pollFirstEntry();
+                    giveBack(index, spotId, calendar, first.getKey(), first.getValue());
+                    pruned++;
+                }
+            }
+        }
+        return pruned;
+    }
+
+    int size() {
+        int windows = 0;
+        for (Map.Entry<Long, TreeMap<LocalDateTime, LocalDateTime>> entry : calendars.entrySet()) {
+            synchronized (type(spotTypes.get(entry.getKey()))) {
+                windows += entry.getValue().size();
+            }
+        }
+        return windows;
+    }
+
+    // The type's gap tree, for tests
+    GapTree gaps(String type) {
+        return type(type).gaps;
+    }
+
+    private static boolean isFree(TreeMap<LocalDateTime, LocalDateTime> calendar, LocalDateTime start,
+            LocalDateTime end) {
+        Map.Entry<LocalDateTime, LocalDateTime> before = calendar.lowerEntry(end);
+        return before == null || !before.getValue().isAfter(start);
+    }
+
+    // Stores a free window and splits the gap it lands in, under the type's lock
+    private static void take(TypeIndex index, long spotId, TreeMap<LocalDateTime, LocalDateTime> calendar,
+            LocalDateTime start, LocalDateTime end) {
+        if (index.active.contains(spotId)) {
+            Map.Entry<LocalDateTime, LocalDateTime> before = calendar.lowerEntry(end);
+            LocalDateTime gapStart = before == null ? OPEN_START : before.getValue();
+            LocalDateTime after = calendar.ceilingKey(end);
+            LocalDateTime gapEnd = after == null ? OPEN_END : after;
+            index.gaps.remove(gapStart, spotId);
+            if (gapStart.isBefore(start)) {
+                index.gaps.insert(gapStart, spotId, start);
+            }
+            if (end.isBefore(gapEnd)) {
+                index.gaps.insert(end, spotId, gapEnd);
+            }
+        }
+        calendar.put(start, end);
+    }
+
+    // Joins the gaps around a window that was just taken out of the calendar, under the type's lock
+    private static void giveBack(TypeIndex index, long spotId, TreeMap<LocalDateTime, LocalDateTime> calendar,
+            LocalDateTime start, LocalDateTime end) {
+        if (!index.active.contains(spotId)) {
+            return;
+        }
+        Map.Entry<LocalDateTime, LocalDateTime> before = calendar.lowerEntry(start);
+        LocalDateTime gapStart = before == null ? OPEN_START : before.getValue();
+        LocalDateTime after = calendar.ceilingKey(start);
+        LocalDateTime gapEnd = after == null ? OPEN_END : after;
+        if (gapStart.isBefore(start)) {
+            index.gaps.remove(gapStart, spotId);
+        }
+        if (end.isBefore(gapEnd)) {
+            index.gaps.remove(end, spotId);
+        }
+        index.gaps.insert(gapStart, spotId, gapEnd);
+    }
+
+    // Visits the non empty gaps between the windows of a calendar, O(k)
+    private static void forEachGap(TreeMap<LocalDateTime, LocalDateTime> calendar, BiConsumer<LocalDateTime, LocalDateTime> visitor) {
+        LocalDateTime gapStart = OPEN_START;
+        for (Map.Entry<LocalDateTime, LocalDateTime> window : calendar.entrySet()) {
+            if (gapStart.isBefore(window.getKey())) {
+                visitor.accept(gapStart, window.getKey());
+            }
+            gapStart = window.getValue();
+        }
+        visitor.accept(gapStart, OPEN_END);
+    }
+
+    private TreeMap<LocalDateTime, LocalDateTime> calendar(long spotId) {
+        return calendars.computeIfAbsent(spotId, id -> new TreeMap<>());
+    }
+
+    private TypeIndex type(String type) {
+        return types.computeIfAbsent(type, t -> new TypeIndex());
+    }
+
+    /*
+     * The free gaps of a type's spots: a treap keyed by (gapStart, spot id) where every node also keeps
+     * the latest gapEnd in its subtree. The gaps starting by a time are a prefix of the key order, so the
+     * first one reaching a later time is found on a single root to leaf path, plus one more descent into
+     * the subtree whose latest gapEnd says it holds one. Not thread safe, used under the type's lock.
+     */
+    static final class GapTree {
+
+        private static final class Node {
+            final LocalDateTime start;
+            final long spotId;
+            final LocalDateTime end;
+            final int priority = ThreadLocalRandom.current().nextInt();
+            LocalDateTime maxEnd;
+            Node left;
+            Node right;
+
+            Node(LocalDateTime start, long spotId, LocalDateTime end) {
+                this.start = start;
+                this.spotId = spotId;
+                this.end = end;
+                this.maxEnd = end;
+            }
+
+            int compareTo(LocalDateTime otherStart, long otherSpotId) {
+                int byStart = start.compareTo(otherStart);
+                return byStart != 0 ? byStart : Long.compare(spotId, otherSpotId);
+            }
+
+            void update() {
+                maxEnd = end;
+                if (left != null && left.maxEnd.isAfter(maxEnd)) {
+                    maxEnd = left.maxEnd;
+                }
+                if (right != null && right.maxEnd.isAfter(maxEnd)) {
+                    maxEnd = right.maxEnd;
+                }
+            }
+        }
+
+        private Node root;
+        private int size;
+        // Nodes looked at by the last findCovering, to check the search stays logarithmic
+        private int visited;
+
+        void insert(LocalDateTime start, long spotId, LocalDateTime end) {
+            root = insert(root, new Node(start, spotId, end));
+            size++;
+        }
+
+        void remove(LocalDateTime start, long spotId) {
+            root = remove(root, start, spotId);
+        }
+
+        // The spot of the first gap (by start, then spot id) covering [start, end), null when there is none
+        Long findCovering(LocalDateTime start, LocalDateTime end) {
+            visited = 0;
+            Node node = root;
+            while (node != null && !node.maxEnd.isBefore(end)) {
+                visited++;
+                if (node.start.isAfter(start)) {
+                    node = node.left;
+                } else if (node.left != null && !node.left.maxEnd.isBefore(end)) {
+                    // Everything on the left starts by start too, so the first covering gap is there
+                    return first(node.left, end).spotId;
+                } else if (!node.end.isBefore(end)) {
+                    return node.spotId;
+                } else {
+                    node = node.right;
+                }
+            }
+            return null;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int lastVisited() {
+            return visited;
+        }
+
+        // The first node of a subtree whose end reaches the time, the subtree must have one
+        private Node first(Node node, LocalDateTime end) {
+            while (true) {
+                visited++;
+                if (node.left != null && !node.left.maxEnd.isBefore(end)) {
+                    node = node.left;
+                } else if (!node.end.isBefore(end)) {
+                    return node;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        private static Node insert(Node node, Node added) {
+            if (node == null) {
+                return added;
+            }
+            if (added.priority > node.priority) {
+                Node[] halves = split(node, added.start, added.spotId);
+                added.left = halves[0];
+                added.right = halves[1];
+                added.update();
+                return added;
+            }
+            if (node.compareTo(added.start, added.spotId) > 0) {
+                node.left = insert(node.left, added);
+            } else {
+                node.right = insert(node.right, added);
+            }
+            node.update();
+            return node;
+        }
+
+        private Node remove(Node node, LocalDateTime start, long spotId) {
+            if (node == null) {
+                return null;
+            }
+            int cmp = node.compareTo(start, spotId);
+            if (cmp == 0) {
+                size--;
+                return merge(node.left, node.right);
+            }
+            if (cmp > 0) {
+                node.left = remove(node.left, start, spotId);
+            } else {
+                node.right = remove(node.right, start, spotId);
+            }
+            node.update();
+            return node;
+        }
+
+        // The nodes before (start, spot id) and the rest
+        private static Node[] split(Node node, LocalDateTime start, long spotId) {
+            if (node == null) {
+                return new Node[2];
+            }
+            if (node.compareTo(start, spotId) < 0) {
+                Node[] halves = split(node.right, start, spotId);
+                node.right = halves[0];
+                node.update();
+                halves[0] = node;
+                return halves;
+            }
+            Node[] halves = split(node.left, start, spotId);
+            node.left = halves[1];
+            node.update();
+            halves[1] = node;
+            return halves;
+        }
+
+        // Joins two treaps, every key of the first before every key of the second
+        private static Node merge(Node first, Node second) {
+            if (first == null) {
+                return second;
+            }
+            if (second == null) {
+                return first;
+            }
+            if (first.priority > second.priority) {
+                first.right = merge(first.right, second);
+                first.update();
+                return first;
+            }
+            second.left = merge(first, second.left);
+            second.update();
+            return second;
+        }
+    }
+}
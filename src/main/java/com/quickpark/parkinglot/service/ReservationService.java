@@ -0,0 +1,337 @@
+package com.quickpark.parkinglot.service;
+
+import com.quickpark.parkinglot.Exceptions.ParkingLotException;
+import com.quickpark.parkinglot.Exceptions.ResourceNotFoundException;
+import com.quickpark.parkinglot.Exceptions.ValidationException;
+import com.quickpark.parkinglot.entities.ParkingSpot;
+import com.quickpark.parkinglot.entities.Reservation;
+import com.quickpark.parkinglot.repository.ParkingSpotRepository;
+import com.quickpark.parkinglot.repository.ReservationRepository;
+import com.quickpark.parkinglot.request.ReservationRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Spots booked ahead for a time window.
+ *
+ * The in-memory ReservationIndex (per spot calendars and an index of their free gaps) picks a spot for a
+ * reservation; storing it in reservations re-checks the spot and the vehicle under row locks, since other
+ * instances reserve against their own index. Cars parked without a reservation have no end time, so the
+ * calendars only hold reservations. Instead, hold-before-minutes ahead of the start the spot is taken out
+ * of the SpotAllocator pools; once a walk-in on it leaves, it stays free for the reservation.
+ * When the vehicle parks in its window it gets the held spot straight from the held map, or any free
+ * spot of the type if the held one is still occupied. No show after no-show-minutes expires it.
+ */
+@Service
+public class ReservationService implements IReservationService {
+
+    private final ReservationRepository reservationRepository;
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final SpotAllocator spotAllocator;
+    private final UserCache userCache;
+    private final Validation validation;
+    private final ParkingMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ReservationIndex index = new ReservationIndex();
+    // Reservations about to start whose spot is held, by vehicle number
+    private final Map<String, Reservation> held = new ConcurrentHashMap<>();
+
+    @Value("${reservation.max-days-ahead:30}")
+    private int maxDaysAhead;
+
+    @Value("${reservation.max-hours:24}")
+    private int maxHours;
+
+    @Value("${reservation.hold-before-minutes:15}")
+    private int holdBeforeMinutes;
+
+    @Value("${reservation.no-show-minutes:30}")
+    private int noShowMinutes;
+
+    public ReservationService(ReservationRepository reservationRepository,
+            ParkingSpotRepository parkingSpotRepository, SpotAllocator spotAllocator, UserCache userCache,
+            Validation validation, ParkingMetrics metrics, TransactionTemplate transactionTemplate) {
+        this.reservationRepository = reservationRepository;
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.spotAllocator = spotAllocator;
+        this.userCache = userCache;
+        this.validation = validation;
+        this.metrics = metrics;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Builds the spot calendars from the reservations that have not ended, then holds the due ones
+    @PostConstruct
+    public void loadFromDatabase() {
+        long startTime = System.currentTimeMillis();
+        for (Object[] row : parkingSpotRepository.findActiveSpots()) {
+            index.addSpot(((Number) row[0]).longValue(), (String) row[1]);
+        }
+        List<Reservation> open = reservationRepository.findByStatusInAndEndTimeAfter(
+                List.of(Reservation.ACTIVE, Reservation.FULFILLED), LocalDateTime.now());
+        for (Reservation reservation : open) {
+            ParkingSpot spot = reservation.getParkingSpot();
+            index.restore(Long.parseLong(spot.getId()), spot.getType(), reservation.getStartTime(),
+                    reservation.getEndTime());
+        }
+        holdDueReservations();
+        System.out.println("Reservations loaded: " + open.size() + " open windows in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    @Override
+    public Reservation reserve(String email, ReservationRequest request) {
+        if (email == null || email.isEmpty()) {
+            throw new ParkingLotException("Email is required for a reservation.");
+        }
+        if (request == null) {
+            throw new ValidationException("Request body cannot be empty");
+        }
+        String type = request.type();
+        String vehicleNo = request.vehicleNo();
+        if (!validation.isValidVehicleType(type)) {
+            throw new ValidationException("Invalid vehicle type. Allowed types are: mini, large, compact.");
+        }
+        if (!validation.isVehicleNoValid(vehicleNo)) {
+            throw new ValidationException("Invalid vehicle number format.");
+        }
+        LocalDateTime start = parseTime(request.startTime(), "start");
+        LocalDateTime end = parseTime(request.endTime(), "end");
+        validateWindow(start, end);
+        LocalDateTime now = LocalDateTime.now();
+        if (!start.isAfter(now)) {
+            throw new ValidationException("Reservation must start in the future");
+        }
+        if (start.isAfter(now.plusDays(maxDaysAhead))) {
+            throw new ValidationException("Reservations can be made at most " + maxDaysAhead + " days ahead");
+        }
+        if (userCache.findByEmail(email) == null) {
+            throw new ParkingLotException("User with email " + email + " does not exist.");
+        }
+
+        // The index only picks a candidate spot, the database decides. A spot another instance reserved in the
+        // window is put into the index from the conflict and the next candidate is tried.
+        while (true) {
+            Long spotId = index.bookAny(type, start, end);
+            if (spotId == null) {
+                throw new ParkingLotException("No " + type + " parking spot is free from " + start + " to " + end);
+            }
+            List<Reservation> overlapping = new ArrayList<>();
+            Reservation reservation;
+            try {
+                reservation = transactionTemplate
+                        .execute(status -> store(email, vehicleNo, spotId, start, end, overlapping));
+            } catch (ParkingLotException e) {
+                // Give the window back, nothing was stored
+                index.release(spotId, start);
+                throw e;
+            } catch (Exception e) {
+                index.release(spotId, start);
+                throw new ParkingLotException("Failed to save reservation: " + e.getMessage());
+            }
+            if (reservation != null) {
+                metrics.reservation("created");
+                if (!start.minusMinutes(holdBeforeMinutes).isAfter(now)) {
+                    hold(reservation);
+                }
+                return reservation;
+            }
+            index.release(spotId, start);
+            for (Reservation other : overlapping) {
+                index.restore(spotId, type, other.getStartTime(), other.getEndTime());
+            }
+        }
+    }
+
+    /*
+     * Stores the reservation on the spot in one transaction. The vehicle's reservation_vehicles row and then the
+     * spot's row are locked first, so requests for the same vehicle or spot check and insert one at a time
+     * whichever instance they reach. Fails when the vehicle already has an overlapping reservation; returns null
+     * when the spot has one, with the overlapping reservations added to overlapping.
+     */
+    private Reservation store(String email, String vehicleNo, long spotId, LocalDateTime start, LocalDateTime end,
+            List<Reservation> overlapping) {
+        reservationRepository.lockVehicle(vehicleNo);
+        if (reservationRepository.existsActiveOverlapping(vehicleNo, start, end)) {
+            throw new ParkingLotException("Vehicle " + vehicleNo + " already has a reservation in this window.");
+        }
+        ParkingSpot spot = parkingSpotRepository.lockById(spotId)
+                .orElseThrow(() -> new ParkingLotException("Parking spot not found: " + spotId));
+        overlapping.addAll(reservationRepository.findOpenOverlappingOnSpot(spotId, start, end));
+        if (!overlapping.isEmpty()) {
+            return null;
+        }
+        return reservationRepository.save(new Reservation(email, vehicleNo, spot, start, end));
+    }
+
+    @Override
+    public Map<String, Object> checkAvailability(String type, String startTime, String endTime) {
+        type = type == null ? null : type.trim().toLowerCase();
+        if (!validation.isValidVehicleType(type)) {
+            throw new ValidationException("Invalid vehicle type. Allowed types are: mini, large, compact.");
+        }
+        LocalDateTime start = parseTime(startTime, "start");
+        LocalDateTime end = parseTime(endTime, "end");
+        validateWindow(start, end);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("type", type);
+        response.put("startTime", start);
+        response.put("endTime", end);
+        response.put("available", index.anyFree(type, start, end));
+        return response;
+    }
+
+    @Override
+    public List<Reservation> getReservations(String email) {
+        if (email == null || email.isEmpty()) {
+            throw new ParkingLotException("Email is required to fetch reservations.");
+        }
+        return reservationRepository.findByEmailOrderByStartTimeDesc(email);
+    }
+
+    @Override
+    public Reservation cancelReservation(String email, Long reservationId) {
+        if (reservationId == null) {
+            throw new ValidationException("Reservation id cannot be null");
+        }
+        Reservation reservation = reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reservation with id " + reservationId + " not found"));
+        if (!reservation.getEmail().equals(email)) {
+            throw new ParkingLotException("Unauthorized cancellation attempt for reservation ID: " + reservationId);
+        }
+        if (reservationRepository.updateStatus(reservationId, Reservation.ACTIVE, Reservation.CANCELLED) == 0) {
+            throw new ParkingLotException("Only active reservations can be cancelled.");
+        }
+        reservation.setStatus(Reservation.CANCELLED);
+        close(reservation);
+        metrics.reservation("cancelled");
+        return reservation;
+    }
+
+    // The held reservation of a vehicle parking now, null when it has none for this type
+    public Reservation findArrival(String email, String vehicleNo, String type) {
+        Reservation reservation = held.get(vehicleNo);
+        if (reservation == null || !reservation.getEmail().equals(email)
+                || !reservation.getParkingSpot().getType().equals(type)) {
+            return null;
+        }
+        return reservation;
+    }
+
+    // The vehicle has parked, on the held spot or (when that was still occupied) another one
+    public void fulfil(Reservation reservation, boolean onReservedSpot) {
+        if (reservationRepository.updateStatus(reservation.getId(), Reservation.ACTIVE, Reservation.FULFILLED) == 1) {
+            reservation.setStatus(Reservation.FULFILLED);
+        }
+        // The window stays in the calendar until it ends, the car is on the spot
+        releaseHold(reservation);
+        metrics.reservation(onReservedSpot ? "fulfilled" : "moved");
+    }
+
+    /*
+     * Holds the spots of the reservations starting within hold-before-minutes, expires the ones
+     * nobody showed up for and drops the windows that have ended from the calendars.
+     */
+    @Scheduled(fixedDelayString = "${reservation.maintenance-interval-ms:60000}")
+    public void holdDueReservations() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Reservation> due = reservationRepository.findByStatusAndStartTimeLessThanEqual(Reservation.ACTIVE,
+                    now.plusMinutes(holdBeforeMinutes));
+            for (Reservation reservation : due) {
+                if (reservation.getStartTime().plusMinutes(noShowMinutes).isBefore(now)) {
+                    expire(reservation);
+                } else {
+                    hold(reservation);
+                }
+            }
+            index.pruneEndedBy(now);
+        } catch (Exception e) {
+            System.err.println("Failed to update reservation holds: " + e.getMessage());
+        }
+    }
+
+    // New spots take reservations straight away
+    public void spotsAdded(List<ParkingSpot> spots) {
+        for (ParkingSpot spot : spots) {
+            if (spot.isActive()) {
+                index.addSpot(Long.parseLong(spot.getId()), spot.getType());
+            }
+        }
+    }
+
+    // Deactivated spots keep their reservations but take no new ones
+    public void activationChanged(ParkingSpot spot) {
+        activationChanged(Long.parseLong(spot.getId()), spot.getType(), spot.isActive());
+    }
+
+    public void activationChanged(long spotId, String type, boolean active) {
+        if (active) {
+            index.addSpot(spotId, type);
+        } else {
+            index.removeSpot(spotId);
+        }
+    }
+
+    private void expire(Reservation reservation) {
+        if (reservationRepository.updateStatus(reservation.getId(), Reservation.ACTIVE, Reservation.EXPIRED) == 1) {
+            reservation.setStatus(Reservation.EXPIRED);
+            close(reservation);
+            metrics.reservation("expired");
+        }
+    }
+
+    // Frees the window and the hold of a reservation that will not be used
+    private void close(Reservation reservation) {
+        index.release(Long.parseLong(reservation.getParkingSpot().getId()), reservation.getStartTime());
+        releaseHold(reservation);
+    }
+
+    // A vehicle has at most one held reservation, a later one is held once the earlier one is done
+    private void hold(Reservation reservation) {
+        if (held.putIfAbsent(reservation.getVehicleNo(), reservation) == null) {
+            spotAllocator.hold(reservation.getParkingSpot());
+        }
+    }
+
+    private void releaseHold(Reservation reservation) {
+        Reservation current = held.get(reservation.getVehicleNo());
+        if (current != null && current.getId().equals(reservation.getId())
+                && held.remove(reservation.getVehicleNo(), current)) {
+            spotAllocator.unhold(Long.parseLong(reservation.getParkingSpot().getId()));
+        }
+    }
+
+    private LocalDateTime parseTime(String time, String name) {
+        if (time == null || time.isBlank()) {
+            throw new ValidationException("Reservation " + name + " time cannot be null or empty");
+        }
+        // Not Validation.isValidDateString, it rejects next year's dates; the window checks bound the range
+        try {
+            return LocalDateTime.parse(time.trim()).truncatedTo(ChronoUnit.MINUTES);
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Invalid " + name + " time format. Expected format: YYYY-MM-DDTHH:MM:SS");
+        }
+    }
+
+    private void validateWindow(LocalDateTime start, LocalDateTime end) {
+        if (!end.isAfter(start)) {
+            throw new ValidationException("Reservation end time must be after its start time");
+        }
+        if (end.isAfter(start.plusHours(maxHours))) {
+            throw new ValidationException("Reservations can last at most " + maxHours + " hours");
+        }
+    }
+}
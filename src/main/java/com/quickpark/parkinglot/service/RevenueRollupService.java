@@ -0,0 +1,163 @@
+package com.quickpark.parkinglot.service;
+
+import com.quickpark.parkinglot.entities.UnparkedTicket;
+import com.quickpark.parkinglot.repository.DailyRevenueRepository;
+import com.quickpark.parkinglot.repository.HourlyRevenueRepository;
+import com.quickpark.parkinglot.repository.UnparkedTicketRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Revenue per vehicle type rolled up into hourly and daily buckets, so a revenue range doesn't have to load tickets.
+ *
+ * Every unpark adds its cost to its exit hour and exit day (record) in the transaction that moves the ticket into
+ * ticket_history, so a bucket never misses a committed ticket. A range [start, end] is then answered as
+ *   tickets in [start, first full hour)           SUM over ticket_history, less than an hour of rows
+ * + hourly buckets up to the first full day
+ * + daily buckets for the full days
+ * + hourly buckets after the last full day
+ * + tickets in [last full hour, end]              SUM over ticket_history again
+ * which is a handful of indexed queries whatever the length of the range.
+ *
+ * Tickets that exited before the rollups existed are added once by backfill(). The cutoff between the two is kept in
+ * revenue_rollup_backfill: the first instance that starts sets it before its web server accepts requests, and it
+ * never changes afterwards, so every unpark recorded live by any instance exits after it. Instances starting later
+ * only read it. The backfill runs on whichever instance locks the row first (FOR UPDATE SKIP LOCKED), the others
+ * skip it, and it marks the row done in the same transaction, so it runs once however many instances start together.
+ * A backfill that fails is rolled back and retried on the next start.
+ */
+@Service
+public class RevenueRollupService {
+
+    private final HourlyRevenueRepository hourlyRevenueRepository;
+    private final DailyRevenueRepository dailyRevenueRepository;
+    private final UnparkedTicketRepository unparkedTicketRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${revenue.rollup.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    public RevenueRollupService(HourlyRevenueRepository hourlyRevenueRepository,
+            DailyRevenueRepository dailyRevenueRepository, UnparkedTicketRepository unparkedTicketRepository,
+            TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate) {
+        this.hourlyRevenueRepository = hourlyRevenueRepository;
+        this.dailyRevenueRepository = dailyRevenueRepository;
+        this.unparkedTicketRepository = unparkedTicketRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*
+     * Sets the backfill cutoff to now unless an instance already did. Runs before the web server accepts requests,
+     * so this instance records nothing live before the cutoff. The plain read comes first, it never waits for
+     * the row lock a running backfill holds.
+     */
+    @PostConstruct
+    void setBackfillCutoff() {
+        List<Timestamp> cutoff = jdbcTemplate.queryForList(
+                "SELECT cutoff FROM revenue_rollup_backfill WHERE id = 1", Timestamp.class);
+        if (cutoff.size() == 1 && cutoff.get(0) == null) {
+            jdbcTemplate.update("UPDATE revenue_rollup_backfill SET cutoff = ? WHERE id = 1 AND cutoff IS NULL",
+                    Timestamp.valueOf(LocalDateTime.now()));
+        }
+    }
+
+    // Adds an unparked ticket to its exit hour and day, in the caller's transaction when there is one (unpark)
+    public void record(UnparkedTicket ticket) {
+        LocalDateTime exitTime = ticket.getExitTime();
+        String type = ticket.getParkingSpot().getType();
+        transactionTemplate.executeWithoutResult(status -> {
+            hourlyRevenueRepository.add(exitTime.truncatedTo(ChronoUnit.HOURS), type, ticket.getTotalCost(), 1);
+            dailyRevenueRepository.add(exitTime.truncatedTo(ChronoUnit.DAYS), type, ticket.getTotalCost(), 1);
+        });
+    }
+
+    // Revenue of the tickets that exited in [start, end], both ends included like findByExitTimeBetween
+    public long revenueBetween(LocalDateTime start, LocalDateTime end) {
+        if (start.isAfter(end)) {
+            return 0;
+        }
+        LocalDateTime firstFullHour = ceilTo(start, ChronoUnit.HOURS);
+        LocalDateTime lastFullHour = end.truncatedTo(ChronoUnit.HOURS);
+        if (!firstFullHour.isBefore(lastFullHour)) {
+            // No complete hour inside the range, it is small enough to sum directly
+            return unparkedTicketRepository.sumTotalCostExitedBetween(start, end);
+        }
+
+        long revenue = unparkedTicketRepository.sumTotalCostExitedFrom(start, firstFullHour)
+                + unparkedTicketRepository.sumTotalCostExitedBetween(lastFullHour, end);
+
+        LocalDateTime firstFullDay = ceilTo(firstFullHour, ChronoUnit.DAYS);
+        LocalDateTime lastFullDay = lastFullHour.truncatedTo(ChronoUnit.DAYS);
+        if (firstFullDay.isBefore(lastFullDay)) {
+            revenue += hourlyRevenueRepository.sumRevenue(firstFullHour, firstFullDay)
+                    + dailyRevenueRepository.sumRevenue(firstFullDay, lastFullDay)
+                    + hourlyRevenueRepository.sumRevenue(lastFullDay, lastFullHour);
+        } else {
+            revenue += hourlyRevenueRepository.sumRevenue(firstFullHour, lastFullHour);
+        }
+        return revenue;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfNotDone() {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    // Rolls up every ticket that exited before the cutoff, in one transaction, unless another instance did or does
+    void backfill() {
+        long startTime = System.currentTimeMillis();
+        int hours = transactionTemplate.execute(status -> {
+            // No row: another instance is backfilling right now
+            List<Timestamp> cutoff = jdbcTemplate.queryForList("SELECT cutoff FROM revenue_rollup_backfill "
+                    + "WHERE id = 1 AND done = FALSE AND cutoff IS NOT NULL FOR UPDATE SKIP LOCKED", Timestamp.class);
+            if (cutoff.isEmpty()) {
+                return 0;
+            }
+            List<Object[]> rows = unparkedTicketRepository.sumRevenueByExitHourAndType(
+                    cutoff.get(0).toLocalDateTime());
+            Map<LocalDate, Map<String, long[]>> days = new HashMap<>();
+            for (Object[] row : rows) {
+                LocalDateTime hour = LocalDateTime.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+                        ((Number) row[2]).intValue(), ((Number) row[3]).intValue(), 0);
+                String type = (String) row[4];
+                long revenue = ((Number) row[5]).longValue();
+                long tickets = ((Number) row[6]).longValue();
+                hourlyRevenueRepository.add(hour, type, revenue, tickets);
+                long[] day = days.computeIfAbsent(hour.toLocalDate(), d -> new HashMap<>())
+                        .computeIfAbsent(type, t -> new long[2]);
+                day[0] += revenue;
+                day[1] += tickets;
+            }
+            days.forEach((day, byType) -> byType.forEach((type, totals) -> dailyRevenueRepository
+                    .add(day.atStartOfDay(), type, totals[0], totals[1])));
+            jdbcTemplate.update("UPDATE revenue_rollup_backfill SET done = TRUE WHERE id = 1");
+            return rows.size();
+        });
+        if (hours > 0) {
+            System.out.println("Revenue rollups backfilled: " + hours + " hourly buckets in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+        }
+    }
+
+    private static LocalDateTime ceilTo(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+}
@@ -0,0 +1,572 @@
+package com.quickpark.parkinglot.service;
+
+import com.quickpark.parkinglot.Exceptions.ParkingLotException;
+import com.quickpark.parkinglot.entities.DisplayBoard;
+import com.quickpark.parkinglot.entities.Gate;
+import com.quickpark.parkinglot.entities.ParkingSpot;
+import com.quickpark.parkinglot.repository.GateRepository;
+import com.quickpark.parkinglot.repository.ParkingSpotRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Hands out free parking spots to park requests.
+ * The free spots of each type are kept in memory in a lock-free sorted set, loaded from
+ * parking_spots at startup. Every caller polls a distinct spot from the set, so concurrent
+ * requests never race for the same row and the database write only confirms the claim: the booked spot
+ * is built from what the set already holds, nothing is read back.
+ * The set is ordered by row then column, so spots are still handed out front rows first like before.
+ *
+ * Every open entry gate also holds its own reserved set per type, filled from the free spots in the
+ * rows nearest to it (sections are per vehicle type, so "nearest" is the row within the section).
+ * A park request with a gate id polls that set first and only falls back to the shared pool, and then
+ * to other gates' reserved spots, when it is empty. A background pass moves spots from the shared pool
+ * into the gate sets, so gates don't contend with each other for the same spots in the common case.
+ * The allocator also keeps the DisplayBoard counters in step with every booking change,
+ * so the in-memory view of parking_spots has a single owner.
+ */
+@Service
+public class SpotAllocator {
+
+    private static final String[] SPOT_TYPES = { "mini", "compact", "large" };
+    // How long an atomic claim keeps retrying while every free row is locked by other claims
+    private static final long ATOMIC_CLAIM_TIMEOUT_MS = 2000;
+
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final GateRepository gateRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DisplayBoard displayBoard = DisplayBoard.getInstance();
+    private final ParkingMetrics metrics;
+    // Free spots not reserved by any gate
+    private final Map<String, ConcurrentSkipListSet<SpotRef>> freeSpots = new ConcurrentHashMap<>();
+    // Open entry gates by id
+    private final Map<Long, GatePool> gatePools = new ConcurrentHashMap<>();
+    // Spots held for reservations about to start (spot id -> holds), kept out of every pool
+    private final Map<Long, Integer> heldSpots = new ConcurrentHashMap<>();
+
+    /*
+     * pool -> claim from the in-memory free spot pool (default)
+     * atomic -> lock and book a free row in one transaction with FOR UPDATE SKIP LOCKED
+     * optimistic -> legacy read of the first free row + save with @Version retries
+     */
+    @Value("${parking.spot.claim-mode:pool}")
+    private String claimMode;
+
+    // Spots of each type an entry gate keeps reserved
+    @Value("${parking.gate.pool-size:20}")
+    private int gatePoolSize;
+
+    /*
+     * A free spot in the pools, ordered by its place in the section (S1-R2-C3 -> row 2, column 3).
+     * The id breaks ties, locations that don't parse sort after all others.
+     * It also carries the rest of the row as last written (cost, version, createdAt), so a claim builds the
+     * booked spot without reading it back. The sets only compare place and id, a ref made from the id and
+     * location alone finds the full one for removal.
+     */
+    record SpotRef(int row, int col, long id, String location, int cost, Long version, LocalDateTime createdAt)
+            implements Comparable<SpotRef> {
+
+        static SpotRef of(long id, String location) {
+            return of(id, location, 0, null, null);
+        }
+
+        static SpotRef of(long id, String location, int cost, Long version, LocalDateTime createdAt) {
+            try {
+                String[] parts = location.split("-");
+                return new SpotRef(Integer.parseInt(parts[1].substring(1)), Integer.parseInt(parts[2].substring(1)),
+                        id, location, cost, version, createdAt);
+            } catch (RuntimeException e) {
+                return new SpotRef(Integer.MAX_VALUE, Integer.MAX_VALUE, id, location, cost, version, createdAt);
+            }
+        }
+
+        static SpotRef of(ParkingSpot spot) {
+            return of(Long.parseLong(spot.getId()), spot.getLocation(), spot.getCost(), spot.getVersion(),
+                    spot.getCreatedAt());
+        }
+
+        static SpotRef probe(int row) {
+            return new SpotRef(row, Integer.MIN_VALUE, Long.MIN_VALUE, null, 0, null, null);
+        }
+
+        // The spot as markBookedIfFree left it, which also bumped the version
+        ParkingSpot booked(String type, LocalDateTime now) {
+            ParkingSpot spot = SpotProvisioningService.createParkingSpot(type, location);
+            spot.setId(String.valueOf(id));
+            spot.setCost(cost);
+            spot.setVersion(version == null ? null : version + 1);
+            spot.setCreatedAt(createdAt);
+            spot.setUpdatedAt(now);
+            spot.setBooked(true);
+            return spot;
+        }
+
+        int distanceTo(int gateRow) {
+            return Math.abs(row - gateRow);
+        }
+
+        @Override
+        public int compareTo(SpotRef other) {
+            int byRow = Integer.compare(row, other.row);
+            if (byRow != 0) {
+                return byRow;
+            }
+            int byCol = Integer.compare(col, other.col);
+            return byCol != 0 ? byCol : Long.compare(id, other.id);
+        }
+    }
+
+    // Spots reserved for one entry gate, per type, closest to the gate's row first
+    private static final class GatePool {
+        final int row;
+        final Map<String, ConcurrentSkipListSet<SpotRef>> reserved = new ConcurrentHashMap<>();
+
+        GatePool(int row) {
+            this.row = row;
+        }
+
+        ConcurrentSkipListSet<SpotRef> reserved(String type) {
+            return reserved.computeIfAbsent(type, t -> new ConcurrentSkipListSet<>(
+                    Comparator.<SpotRef>comparingInt(spot -> spot.distanceTo(row))
+                            .thenComparing(Comparator.naturalOrder())));
+        }
+    }
+
+    public SpotAllocator(ParkingSpotRepository parkingSpotRepository, GateRepository gateRepository,
+            PlatformTransactionManager transactionManager, ParkingMetrics metrics) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.gateRepository = gateRepository;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /*
+     * Rebuild the free spot pools, the gate reservations and the display board from the database.
+     * Runs at startup and on an explicit admin reconcile; bookings that happen while it runs
+     * may be missed until the next reconcile.
+     */
+    @PostConstruct
+    public synchronized void loadFromDatabase() {
+        int total = 0;
+        for (String type : SPOT_TYPES) {
+            ConcurrentSkipListSet<SpotRef> spots = new ConcurrentSkipListSet<>();
+            for (Object[] row : parkingSpotRepository.findFreeSpots(type)) {
+                long spotId = ((Number) row[0]).longValue();
+                if (!heldSpots.containsKey(spotId)) {
+                    spots.add(SpotRef.of(spotId, (String) row[1], ((Number) row[2]).intValue(), (Long) row[3],
+                            (LocalDateTime) row[4]));
+                }
+            }
+            freeSpots.put(type, spots);
+            total += spots.size();
+        }
+        // The reservations are rebuilt from the fresh shared pools
+        gatePools.clear();
+
+        Map<String, long[]> counts = new HashMap<>();
+        for (Object[] row : parkingSpotRepository.countByTypeAndBookingAndActiveStatus()) {
+            String type = (String) row[0];
+            boolean booked = (Boolean) row[1];
+            boolean active = (Boolean) row[2];
+            long count = ((Number) row[3]).longValue();
+            long[] typeCounts = counts.computeIfAbsent(type, t -> new long[2]);
+            if (booked) {
+                typeCounts[1] += count;
+            } else if (active) {
+                typeCounts[0] += count;
+            }
+        }
+        for (String type : SPOT_TYPES) {
+            long[] typeCounts = counts.getOrDefault(type, new long[2]);
+            displayBoard.reset(type, typeCounts[0], typeCounts[1]);
+        }
+        System.out.println("Spot allocator loaded with " + total + " free parking spots");
+        loadGates();
+    }
+
+    /*
+     * Sync the gate reservations with the open entry gates in the database.
+     * Gates that closed (or moved) hand their reserved spots back to the shared pool,
+     * new gates start empty and are filled right away.
+     */
+    public synchronized void loadGates() {
+        Map<Long, Integer> openGates = new HashMap<>();
+        for (Gate gate : gateRepository.findAllByStatus(true)) {
+            if ("entry".equalsIgnoreCase(gate.getType())) {
+                openGates.put(Long.parseLong(gate.getId()), gate.getNearestRow());
+            }
+        }
+        gatePools.entrySet().removeIf(entry -> {
+            Integer row = openGates.get(entry.getKey());
+            if (row != null && row == entry.getValue().row) {
+                return false;
+            }
+            entry.getValue().reserved.forEach((type, spots) -> pool(type).addAll(spots));
+            return true;
+        });
+        openGates.forEach((gateId, row) -> gatePools.computeIfAbsent(gateId, id -> new GatePool(row)));
+        refillGatePools();
+    }
+
+    /*
+     * Top every gate up to pool-size spots per type from the shared pool, one spot per gate per round
+     * so gates next to each other share the rows between them instead of the first one taking all.
+     */
+    @Scheduled(fixedDelayString = "${parking.gate.refill-interval-ms:1000}")
+    public synchronized void refillGatePools() {
+        if (gatePools.isEmpty()) {
+            return;
+        }
+        for (String type : SPOT_TYPES) {
+            ConcurrentSkipListSet<SpotRef> shared = pool(type);
+            boolean added = true;
+            while (added && !shared.isEmpty()) {
+                added = false;
+                for (GatePool gate : gatePools.values()) {
+                    ConcurrentSkipListSet<SpotRef> reserved = gate.reserved(type);
+                    if (reserved.size() >= gatePoolSize) {
+                        continue;
+                    }
+                    SpotRef spot = takeNearest(shared, gate.row);
+                    if (spot != null) {
+                        reserved.add(spot);
+                        added = true;
+                    }
+                }
+            }
+        }
+    }
+
+    // Claim a free spot of the given type, the returned spot is already booked in the database
+    public ParkingSpot claim(String type) {
+        return claim(type, null);
+    }
+
+    /*
+     * Same, for a car coming in through the given gate (null when unknown).
+     * Only the pool mode keeps gate reservations, the other modes ignore the gate. Every mode skips the
+     * spots held for reservations: the pools never contain them, the database modes exclude their ids.
+     */
+    public ParkingSpot claim(String type, Long gateId) {
+        ParkingSpot spot;
+        if ("atomic".equals(claimMode)) {
+            spot = claimAtomically(type);
+        } else if ("optimistic".equals(claimMode)) {
+            spot = claimWithOptimisticRetry(type);
+        } else if (gateId != null) {
+            spot = claimAtGate(type, gateId);
+        } else {
+            spot = claimFromPool(type);
+        }
+        displayBoard.spotBooked(type);
+        return spot;
+    }
+
+    /*
+     * Two statements per park regardless of how many gates are parking at once:
+     * the locking SELECT and the UPDATE flushed at commit. The row stays locked until then,
+     * so the version check on the UPDATE can never fail.
+     * An empty lock result only means no free row was unlocked at that moment: the others are being
+     * claimed by open transactions (which may still roll back), and databases that apply LIMIT before
+     * SKIP LOCKED (H2) come back empty as soon as the first free row is locked. So the claim only fails
+     * when a plain read finds no free row at all, otherwise it tries again until ATOMIC_CLAIM_TIMEOUT_MS.
+     */
+    private ParkingSpot claimAtomically(String type) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ATOMIC_CLAIM_TIMEOUT_MS);
+        while (true) {
+            ParkingSpot spot = transactionTemplate.execute(status -> {
+                ParkingSpot lockedSpot = parkingSpotRepository.lockFirstFreeSpot(type, heldIds()).orElse(null);
+                if (lockedSpot != null) {
+                    lockedSpot.setBooked(true);
+                    lockedSpot.setUpdatedAt(LocalDateTime.now());
+                }
+                return lockedSpot;
+            });
+            if (spot != null) {
+                removeFromPools(SpotRef.of(spot), type);
+                return spot;
+            }
+            if (!parkingSpotRepository.existsByTypeAndIsBookedAndIsActiveAndIdNotIn(type, false, true, heldIds())) {
+                metrics.claimFailed(type, "no_free_spot");
+                throw new ParkingLotException("No free parking spots available for type: " + type);
+            }
+            if (System.nanoTime() - deadline > 0) {
+                metrics.claimFailed(type, "contention");
+                throw new ParkingLotException("Unable to book parking spot due to high demand. Please try again.");
+            }
+            // Every free row is locked by a claim that commits within a few milliseconds
+            metrics.claimRetried("atomic");
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new ParkingLotException("Parking operation was interrupted. Please try again.");
+            }
+        }
+    }
+
+    private ParkingSpot claimFromPool(String type) {
+        ParkingSpot spot = bookFirst(pool(type), type);
+        if (spot == null) {
+            // Everything left is reserved by gates, better a far spot than none
+            spot = claimFromOtherGates(type, null);
+        }
+        if (spot == null) {
+            metrics.claimFailed(type, "no_free_spot");
+            throw new ParkingLotException("No free parking spots available for type: " + type);
+        }
+        return spot;
+    }
+
+    // Own reservation first, then the nearest shared spot, other gates' reservations only as a last resort
+    private ParkingSpot claimAtGate(String type, Long gateId) {
+        GatePool gate = gatePools.get(gateId);
+        if (gate == null) {
+            throw new ParkingLotException("Gate " + gateId + " is not an open entry gate.");
+        }
+        ParkingSpot spot = bookFirst(gate.reserved(type), type);
+        metrics.gatePoolClaim(spot != null);
+        if (spot == null) {
+            ConcurrentSkipListSet<SpotRef> shared = pool(type);
+            SpotRef nearest;
+            while (spot == null && (nearest = takeNearest(shared, gate.row)) != null) {
+                spot = book(nearest, type);
+            }
+        }
+        if (spot == null) {
+            spot = claimFromOtherGates(type, gateId);
+        }
+        if (spot == null) {
+            metrics.claimFailed(type, "no_free_spot");
+            throw new ParkingLotException("No free parking spots available for type: " + type);
+        }
+        return spot;
+    }
+
+    private ParkingSpot claimFromOtherGates(String type, Long exceptGateId) {
+        for (Map.Entry<Long, GatePool> entry : gatePools.entrySet()) {
+            if (!entry.getKey().equals(exceptGateId)) {
+                ParkingSpot spot = bookFirst(entry.getValue().reserved(type), type);
+                if (spot != null) {
+                    return spot;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Polls spots off the set until one books, null when the set runs out
+    private ParkingSpot bookFirst(ConcurrentSkipListSet<SpotRef> spots, String type) {
+        SpotRef spotRef;
+        while ((spotRef = spots.pollFirst()) != null) {
+            ParkingSpot spot = book(spotRef, type);
+            if (spot != null) {
+                return spot;
+            }
+        }
+        return null;
+    }
+
+    // Nobody else can hold the same polled ref, a miss only means the row changed outside the pools
+    private ParkingSpot book(SpotRef spotRef, String type) {
+        LocalDateTime now = LocalDateTime.now();
+        if (parkingSpotRepository.markBookedIfFree(spotRef.id(), now) == 1) {
+            return spotRef.booked(type, now);
+        }
+        return null;
+    }
+
+    /*
+     * Removes and returns the spot of the set closest to the row, null when the set is empty.
+     * The set is in row order, so the candidates are the first spot at or after the row and the last one before it.
+     */
+    private static SpotRef takeNearest(ConcurrentSkipListSet<SpotRef> spots, int row) {
+        SpotRef probe = SpotRef.probe(row);
+        while (true) {
+            SpotRef after = spots.ceiling(probe);
+            SpotRef before = spots.lower(probe);
+            if (after == null && before == null) {
+                return null;
+            }
+            SpotRef nearest = before == null || (after != null && after.distanceTo(row) <= before.distanceTo(row))
+                    ? after
+                    : before;
+            // Another caller may have taken it in between, look again
+            if (spots.remove(nearest)) {
+                return nearest;
+            }
+        }
+    }
+
+    private ParkingSpot claimWithOptimisticRetry(String type) {
+        int maxRetries = 5;
+        int attempt = 0;
+
+        while (true) {
+            try {
+                // Find first available spot from database
+                ParkingSpot freeParkingSpot = parkingSpotRepository
+                        .findFirstByTypeAndIsBookedAndIdNotIn(type, false, heldIds())
+                        .orElse(null);
+                if (freeParkingSpot == null) {
+                    metrics.claimFailed(type, "no_free_spot");
+                    throw new ParkingLotException("No free parking spots available for type: " + type);
+                }
+
+                // Book the spot
+                freeParkingSpot.setBooked(true);
+                freeParkingSpot.setUpdatedAt(LocalDateTime.now());
+                parkingSpotRepository.save(freeParkingSpot); // This might throw OptimisticLockingFailureException
+                removeFromPools(SpotRef.of(freeParkingSpot), type);
+                return freeParkingSpot;
+
+            } catch (OptimisticLockingFailureException e) {
+                // Another user booked this spot, retry with another spot
+                metrics.claimRetried("park");
+                attempt++;
+                if (attempt >= maxRetries) {
+                    metrics.claimFailed(type, "contention");
+                    throw new ParkingLotException(
+                            "Unable to book parking spot due to high demand. Please try again.");
+                }
+                // Small delay before retry to reduce contention
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new ParkingLotException("Parking operation was interrupted. Please try again.");
+                }
+            }
+        }
+    }
+
+    // Ids of the held spots for NOT IN, -1 (no spot) when there are none since SQL has no empty IN list
+    private List<Long> heldIds() {
+        List<Long> ids = new ArrayList<>(heldSpots.keySet());
+        if (ids.isEmpty()) {
+            ids.add(-1L);
+        }
+        return ids;
+    }
+
+    // Keep a spot out of the pools for a reservation, also once a car parked on it leaves
+    public void hold(ParkingSpot spot) {
+        heldSpots.merge(Long.parseLong(spot.getId()), 1, Integer::sum);
+        removeFromPools(SpotRef.of(spot), spot.getType());
+    }
+
+    // The reservation is over, the spot goes back to the pools once free and no other reservation holds it
+    public void unhold(long spotId) {
+        if (heldSpots.computeIfPresent(spotId, (id, holds) -> holds > 1 ? holds - 1 : null) == null) {
+            parkingSpotRepository.findById(spotId).ifPresent(this::addToPool);
+        }
+    }
+
+    /*
+     * Book a held spot for its reservation's vehicle, null when it is still occupied (or inactive).
+     * Held spots are kept out of the pools, so this one reads the booked row back.
+     */
+    public ParkingSpot claimHeld(long spotId) {
+        if (parkingSpotRepository.markBookedIfFree(spotId, LocalDateTime.now()) != 1) {
+            return null;
+        }
+        ParkingSpot spot = parkingSpotRepository.findById(spotId).orElse(null);
+        if (spot != null) {
+            displayBoard.spotBooked(spot.getType());
+        }
+        return spot;
+    }
+
+    // Undo a claim whose ticket could not be created, frees the spot in the database and the pool
+    public void unclaim(ParkingSpot spot) {
+        parkingSpotRepository.markFreeIfBooked(Long.parseLong(spot.getId()), LocalDateTime.now());
+        release(spot);
+    }
+
+    /*
+     * A spot was freed in the database (unpark), make it bookable again, the refill hands it back to a gate.
+     * spot is the row as it was before markFreeIfBooked, it is updated to what that UPDATE wrote.
+     */
+    public void release(ParkingSpot spot) {
+        spot.setBooked(false);
+        if (spot.getVersion() != null) {
+            spot.setVersion(spot.getVersion() + 1);
+        }
+        addToPool(spot);
+        displayBoard.spotFreed(spot.getType(), spot.isActive());
+    }
+
+    // Newly provisioned spots become available straight away, the gates pick theirs up on the next refill
+    public void addSpots(List<ParkingSpot> spots) {
+        Map<String, Integer> added = new HashMap<>();
+        for (ParkingSpot spot : spots) {
+            addToPool(spot);
+            added.merge(spot.getType(), 1, Integer::sum);
+        }
+        added.forEach(displayBoard::spotsAdded);
+    }
+
+    // Keep the pool and the board in line with an admin activation change
+    public void activationChanged(ParkingSpot spot, boolean wasActive) {
+        if (spot.isActive() == wasActive) {
+            return;
+        }
+        activationChanged(Long.parseLong(spot.getId()), spot.getType(), spot.getLocation(), spot.getCost(),
+                spot.getVersion(), spot.getCreatedAt(), spot.isBooked(), spot.isActive());
+    }
+
+    // Same for a spot read as a plain row (bulk status updates), version and active are the new ones
+    public void activationChanged(long spotId, String type, String location, int cost, Long version,
+            LocalDateTime createdAt, boolean booked, boolean active) {
+        SpotRef ref = SpotRef.of(spotId, location, cost, version, createdAt);
+        if (active) {
+            if (!booked && !heldSpots.containsKey(spotId)) {
+                pool(type).add(ref);
+            }
+        } else {
+            removeFromPools(ref, type);
+        }
+        displayBoard.activationChanged(type, active, booked);
+    }
+
+    private void addToPool(ParkingSpot spot) {
+        if (spot.isActive() && !spot.isBooked() && !heldSpots.containsKey(Long.parseLong(spot.getId()))) {
+            pool(spot.getType()).add(SpotRef.of(spot));
+        }
+    }
+
+    private void removeFromPools(SpotRef spot, String type) {
+        if (pool(type).remove(spot)) {
+            return;
+        }
+        for (GatePool gate : gatePools.values()) {
+            if (gate.reserved(type).remove(spot)) {
+                return;
+            }
+        }
+    }
+
+    // Number of @Version conflicts retried by the optimistic claim mode since startup
+    public long getOptimisticRetryCount() {
+        return metrics.getClaimRetryCount("park");
+    }
+
+    private ConcurrentSkipListSet<SpotRef> pool(String type) {
+        return freeSpots.computeIfAbsent(type, t -> new ConcurrentSkipListSet<>());
+    }
+}
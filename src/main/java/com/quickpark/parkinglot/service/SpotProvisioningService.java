@@ -0,0 +1,167 @@
+package com.quickpark.parkinglot.service;
+
+import com.quickpark.parkinglot.Exceptions.DuplicateResourceException;
+import com.quickpark.parkinglot.Exceptions.ValidationException;
+import com.quickpark.parkinglot.entities.CompactParkingSpot;
+import com.quickpark.parkinglot.entities.LargeParkingSpot;
+import com.quickpark.parkinglot.entities.MiniParkingSpot;
+import com.quickpark.parkinglot.entities.ParkingSpot;
+import com.quickpark.parkinglot.entities.SectionLayout;
+import com.quickpark.parkinglot.repository.SectionLayoutRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Adds parking spots in bulk.
+ * Positions come from the section's layout cursor (SectionLayout) instead of reading every spot of the type,
+ * collisions are checked with one IN query per batch and the rows are inserted with JDBC batches
+ * (Hibernate can't batch IDENTITY inserts). The section's cursor row stays locked until commit, so two
+ * provisioning requests for the same type queue up and the new ids can be read back by type and id range.
+ * The caller publishes the returned spots to the allocator after commit, before that they are not visible.
+ */
+@Service
+public class SpotProvisioningService {
+
+    // Sections are per vehicle type
+    private static final Map<String, Integer> SECTIONS = Map.of("mini", 1, "compact", 2, "large", 3);
+    private static final int COLUMNS_PER_ROW = 10;
+    private static final String INSERT_SPOT = "INSERT INTO parking_spots "
+            + "(dtype, type, cost, location, is_active, is_booked, created_at, updated_at, version) "
+            + "VALUES (?, ?, ?, ?, true, false, ?, ?, 0)";
+
+    private final SectionLayoutRepository sectionLayoutRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${parking.provisioning.batch-size:1000}")
+    private int batchSize;
+
+    public SpotProvisioningService(SectionLayoutRepository sectionLayoutRepository, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate) {
+        this.sectionLayoutRepository = sectionLayoutRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /*
+     * Creates the cursor of every section that has none yet, from the spots already in it.
+     * Only the first start after the upgrade reads parking_spots for this.
+     */
+    @PostConstruct
+    public void seedLayouts() {
+        for (Map.Entry<String, Integer> section : SECTIONS.entrySet()) {
+            if (sectionLayoutRepository.existsById(section.getValue())) {
+                continue;
+            }
+            int lastRow = 1;
+            int lastCol = 0;
+            List<String> locations = jdbcTemplate.queryForList(
+                    "SELECT location FROM parking_spots WHERE type = ?", String.class, section.getKey());
+            for (String location : locations) {
+                SpotAllocator.SpotRef position = SpotAllocator.SpotRef.of(0, location);
+                if (position.row() == Integer.MAX_VALUE) {
+                    continue; // not in the S-R-C format
+                }
+                if (position.row() > lastRow || (position.row() == lastRow && position.col() > lastCol)) {
+                    lastRow = position.row();
+                    lastCol = position.col();
+                }
+            }
+            try {
+                sectionLayoutRepository.save(new SectionLayout(section.getValue(), section.getKey(), lastRow, lastCol));
+                System.out.println("Layout cursor of section " + section.getValue() + " (" + section.getKey()
+                        + ") starts after R" + lastRow + "-C" + lastCol);
+            } catch (DataIntegrityViolationException e) {
+                // Another instance seeded it at the same time
+            }
+        }
+    }
+
+    // Adds count active, free spots of the type after the section's last spot and returns them with their ids
+    public List<ParkingSpot> provision(String type, int count) {
+        Integer section = SECTIONS.get(type);
+        if (section == null) {
+            throw new ValidationException("Invalid type: " + type);
+        }
+        return transactionTemplate.execute(status -> {
+            SectionLayout layout = sectionLayoutRepository.lockBySection(section)
+                    .orElseThrow(() -> new IllegalStateException("No layout cursor for section " + section));
+            Long lastId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM parking_spots", Long.class);
+
+            List<String> locations = new ArrayList<>(count);
+            int row = layout.getLastRow();
+            int col = layout.getLastCol();
+            for (int i = 0; i < count; i++) {
+                col++;
+                if (col > COLUMNS_PER_ROW) {
+                    col = 1;
+                    row++;
+                }
+                locations.add("S" + section + "-R" + row + "-C" + col);
+            }
+
+            // Only spots added behind the cursor's back can collide
+            for (int from = 0; from < locations.size(); from += batchSize) {
+                List<String> batch = locations.subList(from, Math.min(from + batchSize, locations.size()));
+                List<String> taken = namedJdbcTemplate.queryForList(
+                        "SELECT location FROM parking_spots WHERE location IN (:locations)",
+                        Map.of("locations", batch), String.class);
+                if (!taken.isEmpty()) {
+                    throw new DuplicateResourceException("Location " + taken.get(0)
+                            + " already exists. Data integrity issue.");
+                }
+            }
+
+            ParkingSpot template = createParkingSpot(type, null);
+            String dtype = template.getClass().getSimpleName();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate(INSERT_SPOT, locations, batchSize, (ps, location) -> {
+                ps.setString(1, dtype);
+                ps.setString(2, type);
+                ps.setInt(3, template.getCost());
+                ps.setString(4, location);
+                ps.setTimestamp(5, now);
+                ps.setTimestamp(6, now);
+            });
+            layout.moveTo(row, col);
+
+            // The section lock keeps other inserts of this type out, so these are exactly the new rows
+            return jdbcTemplate.query("SELECT id, location FROM parking_spots WHERE type = ? AND id > ? ORDER BY id",
+                    (rs, rowNum) -> {
+                        ParkingSpot spot = createParkingSpot(type, rs.getString(2));
+                        spot.setId(String.valueOf(rs.getLong(1)));
+                        spot.setVersion(0L);
+                        spot.setCreatedAt(now.toLocalDateTime());
+                        spot.setUpdatedAt(now.toLocalDateTime());
+                        return spot;
+                    }, type, lastId);
+        });
+    }
+
+    // Create a parking spot instance based on type
+    static ParkingSpot createParkingSpot(String type, String location) {
+        switch (type) {
+            case "mini":
+                return new MiniParkingSpot(location);
+            case "compact":
+                return new CompactParkingSpot(location);
+            case "large":
+                return new LargeParkingSpot(location);
+            default:
+                throw new ValidationException("Invalid type: " + type);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.quickpark.parkinglot.service;
+
+import com.quickpark.parkinglot.Exceptions.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Activates or deactivates many spots at once, e.g. a whole row for maintenance.
+ *
+ * Exact locations go into IN lists, patterns become LIKE prefixes on location (a range scan of its
+ * unique index), batch-size of them per statement. Each batch first locks its rows with SELECT ... FOR
+ * UPDATE, reading id, type and flags only, then one UPDATE flips the rows that are not in the wanted
+ * state yet. No entity is loaded and unchanged rows keep their version.
+ * After commit the changed spots are published to the allocator pools, the display board and the
+ * reservation calendars. Until then a claim of a spot being deactivated fails its is_active check.
+ */
+@Service
+public class SpotStatusService {
+
+    private static final Pattern SECTION = Pattern.compile("S(\\d+)-\\*");
+    private static final Pattern ROW = Pattern.compile("S(\\d+)-R(\\d+)-\\*");
+    private static final Pattern ROWS = Pattern.compile("S(\\d+)-R(\\d+)\\.\\.R?(\\d+)(-\\*)?");
+    private static final Pattern COLUMNS = Pattern.compile("S(\\d+)-R(\\d+)-C(\\d+)\\.\\.C?(\\d+)");
+    private static final int MAX_RANGE = 1000;
+    private static final String SELECT_SPOTS = "SELECT id, location, type, is_active, is_booked, cost, version, "
+            + "created_at FROM parking_spots";
+    private static final RowMapper<SpotRow> SPOT_ROW = (rs, rowNum) -> new SpotRow(rs.getLong(1), rs.getString(2),
+            rs.getString(3), rs.getBoolean(4), rs.getBoolean(5), rs.getInt(6), rs.getLong(7),
+            rs.getObject(8, LocalDateTime.class));
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SpotAllocator spotAllocator;
+    private final ReservationService reservationService;
+
+    @Value("${parking.spot-status.batch-size:1000}")
+    private int batchSize;
+
+    public SpotStatusService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            SpotAllocator spotAllocator, ReservationService reservationService) {
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.spotAllocator = spotAllocator;
+        this.reservationService = reservationService;
+    }
+
+    record SpotRow(long id, String location, String type, boolean active, boolean booked, int cost, long version,
+            LocalDateTime createdAt) {
+    }
+
+    // matched spots, how many changed state and the locations and patterns that matched nothing
+    public record Result(int matched, int updated, List<String> notFound) {
+    }
+
+    public Result setActive(List<String> locations, List<String> patterns, boolean active) {
+        Set<String> exact = new LinkedHashSet<>(locations);
+        // pattern -> LIKE prefixes, column ranges expand to exact locations instead
+        Map<String, List<String>> prefixes = new LinkedHashMap<>();
+        Map<String, List<String>> expanded = new LinkedHashMap<>();
+        for (String pattern : patterns) {
+            parse(pattern, prefixes, expanded);
+        }
+        expanded.values().forEach(exact::addAll);
+        List<String> allPrefixes = prefixes.values().stream().flatMap(List::stream).distinct().toList();
+        if (exact.isEmpty() && allPrefixes.isEmpty()) {
+            return new Result(0, 0, List.of());
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<Long, SpotRow> found = new LinkedHashMap<>();
+        int updated = transactionTemplate.execute(status -> {
+            int changed = 0;
+            List<String> exactList = new ArrayList<>(exact);
+            for (int from = 0; from < exactList.size(); from += batchSize) {
+                List<String> batch = exactList.subList(from, Math.min(from + batchSize, exactList.size()));
+                MapSqlParameterSource params = new MapSqlParameterSource("locations", batch)
+                        .addValue("active", active).addValue("now", now);
+                lockRows(SELECT_SPOTS + " WHERE location IN (:locations) FOR UPDATE", params, found);
+                changed += namedJdbcTemplate.update("UPDATE parking_spots SET is_active = :active, updated_at = :now, "
+                        + "version = version + 1 WHERE location IN (:locations) AND is_active <> :active", params);
+            }
+            for (int from = 0; from < allPrefixes.size(); from += batchSize) {
+                List<String> batch = allPrefixes.subList(from, Math.min(from + batchSize, allPrefixes.size()));
+                MapSqlParameterSource params = new MapSqlParameterSource("active", active).addValue("now", now);
+                StringBuilder where = new StringBuilder();
+                for (int i = 0; i < batch.size(); i++) {
+                    where.append(i == 0 ? "(" : " OR ").append("location LIKE :p").append(i);
+                    params.addValue("p" + i, batch.get(i) + "%");
+                }
+                where.append(")");
+                lockRows(SELECT_SPOTS + " WHERE " + where + " FOR UPDATE", params, found);
+                changed += namedJdbcTemplate.update("UPDATE parking_spots SET is_active = :active, updated_at = :now, "
+                        + "version = version + 1 WHERE " + where + " AND is_active <> :active", params);
+            }
+            return changed;
+        });
+
+        // Rows read before the UPDATE, so active still holds the old state and version is one behind
+        for (SpotRow spot : found.values()) {
+            if (spot.active() != active) {
+                spotAllocator.activationChanged(spot.id(), spot.type(), spot.location(), spot.cost(),
+                        spot.version() + 1, spot.createdAt(), spot.booked(), active);
+                reservationService.activationChanged(spot.id(), spot.type(), active);
+            }
+        }
+        return new Result(found.size(), updated, notFound(locations, prefixes, expanded, found));
+    }
+
+    private void lockRows(String sql, MapSqlParameterSource params, Map<Long, SpotRow> found) {
+        for (SpotRow spot : namedJdbcTemplate.query(sql, params, SPOT_ROW)) {
+            found.putIfAbsent(spot.id(), spot);
+        }
+    }
+
+    private static List<String> notFound(List<String> locations, Map<String, List<String>> prefixes,
+            Map<String, List<String>> expanded, Map<Long, SpotRow> found) {
+        // Section (S2-) and row (S2-R3-) prefixes of the matched spots
+        Set<String> foundLocations = new HashSet<>();
+        Set<String> foundPrefixes = new HashSet<>();
+        for (SpotRow spot : found.values()) {
+            String location = spot.location();
+            foundLocations.add(location);
+            foundPrefixes.add(location.substring(0, location.indexOf('-') + 1));
+            foundPrefixes.add(location.substring(0, location.lastIndexOf('-') + 1));
+        }
+        List<String> notFound = new ArrayList<>();
+        for (String location : locations) {
+            if (!foundLocations.contains(location)) {
+                notFound.add(location);
+            }
+        }
+        for (Map.Entry<String, List<String>> pattern : prefixes.entrySet()) {
+            if (pattern.getValue().stream().noneMatch(foundPrefixes::contains)) {
+                notFound.add(pattern.getKey());
+            }
+        }
+        for (Map.Entry<String, List<String>> pattern : expanded.entrySet()) {
+            if (pattern.getValue().stream().noneMatch(foundLocations::contains)) {
+                notFound.add(pattern.getKey());
+            }
+        }
+        return notFound;
+    }
+
+    private static void parse(String pattern, Map<String, List<String>> prefixes,
+            Map<String, List<String>> expanded) {
+        Matcher m;
+        if ((m = SECTION.matcher(pattern)).matches()) {
+            prefixes.put(pattern, List.of("S" + m.group(1) + "-"));
+        } else if ((m = ROW.matcher(pattern)).matches()) {
+            prefixes.put(pattern, List.of("S" + m.group(1) + "-R" + m.group(2) + "-"));
+        } else if ((m = ROWS.matcher(pattern)).matches()) {
+            List<String> rows = new ArrayList<>();
+            for (int row : range(pattern, m.group(2), m.group(3))) {
+                rows.add("S" + m.group(1) + "-R" + row + "-");
+            }
+            prefixes.put(pattern, rows);
+        } else if ((m = COLUMNS.matcher(pattern)).matches()) {
+            List<String> spots = new ArrayList<>();
+            for (int col : range(pattern, m.group(3), m.group(4))) {
+                spots.add("S" + m.group(1) + "-R" + m.group(2) + "-C" + col);
+            }
+            expanded.put(pattern, spots);
+        } else {
+            throw new ValidationException("Invalid location pattern: " + pattern
+                    + ". Expected S2-*, S2-R3-*, S1-R1..R20 or S2-R3-C1..C5");
+        }
+    }
+
+    private static int[] range(String pattern, String fromText, String toText) {
+        int from;
+        int to;
+        try {
+            from = Integer.parseInt(fromText);
+            to = Integer.parseInt(toText);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid range in pattern: " + pattern);
+        }
+        if (from < 1 || to < from) {
+            throw new ValidationException("Invalid range in pattern: " + pattern);
+        }
+        if (to - from >= MAX_RANGE) {
+            throw new ValidationException("A range can cover at most " + MAX_RANGE + " rows or columns: " + pattern);
+        }
+        int[] values = new int[to - from + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,209 @@
+package com.quickpark.parkinglot.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickpark.parkinglot.Exceptions.ValidationException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Streams the ticket history (unparked tickets) of an exit time range as CSV or gzip-compressed NDJSON.
+ * Rows are read through a forward-only cursor as plain column tuples, never as entities, and written out
+ * as they arrive, so memory stays flat however many tickets the range holds.
+ * MySQL Connector/J only streams with fetch size Integer.MIN_VALUE (or useCursorFetch=true in the URL),
+ * any other fetch size buffers the whole result in the driver, so that is used on MySQL.
+ */
+@Service
+public class TicketExportService {
+
+    public record ExportQuery(LocalDateTime from, LocalDateTime to, String type) {
+    }
+
+    private static final String[] COLUMNS = { "ticketId", "vehicleNo", "vehicleModel", "vehicleType", "spotLocation",
+            "firstName", "lastName", "email", "ownerContact", "entryTime", "exitTime", "durationMinutes", "totalCost" };
+
+    private static final String QUERY = "SELECT t.id, t.vehicleNo, t.vehicleModel, s.type, s.location, "
+            + "t.firstName, t.lastName, t.email, t.ownerContact, t.entryTime, t.exitTime, t.totalDuration, t.totalCost "
+            + "FROM UnparkedTicket t JOIN t.parkingSpot s "
+            + "WHERE t.exitTime BETWEEN :from AND :to AND (:type IS NULL OR s.type = :type) "
+            + "ORDER BY t.exitTime, t.id";
+
+    // Same shape as the startDate/endDate parameters, LocalDateTime.toString() drops zero seconds
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validation validation;
+    private final int fetchSize;
+
+    public TicketExportService(EntityManager entityManager, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper, Validation validation, DataSource dataSource,
+            @Value("${export.fetch-size:1000}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.validation = validation;
+        this.fetchSize = isMySqlWithoutCursorFetch(dataSource) ? Integer.MIN_VALUE : fetchSize;
+        // Its own read-only template, the shared one must stay read-write
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // Validates the parameters up front so a bad request gets a 400 instead of a half written file
+    public ExportQuery parseQuery(String startDateStr, String endDateStr, String type) {
+        if (startDateStr == null || startDateStr.isBlank()) {
+            throw new ValidationException("Start date cannot be null or empty");
+        }
+        if (endDateStr == null || endDateStr.isBlank()) {
+            throw new ValidationException("End date cannot be null or empty");
+        }
+        startDateStr = startDateStr.trim();
+        endDateStr = endDateStr.trim();
+        if (!validation.isValidDateString(startDateStr)) {
+            throw new ValidationException("Invalid start date format. Expected format: YYYY-MM-DDTHH:MM:SS");
+        }
+        if (!validation.isValidDateString(endDateStr)) {
+            throw new ValidationException("Invalid end date format. Expected format: YYYY-MM-DDTHH:MM:SS");
+        }
+        if (type != null && !type.isBlank()) {
+            type = type.trim().toLowerCase();
+            if (!validation.isValidVehicleType(type)) {
+                throw new ValidationException("Invalid vehicle type. Allowed types are: mini, large, compact.");
+            }
+        } else {
+            type = null;
+        }
+        return new ExportQuery(LocalDateTime.parse(startDateStr), LocalDateTime.parse(endDateStr), type);
+    }
+
+    public void writeCsv(ExportQuery query, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        streamRows(query, rows -> {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writeCsvField(writer, row[i]);
+                }
+                writer.write("\r\n");
+            }
+            writer.flush();
+        });
+    }
+
+    // One JSON object per line, gzip compressed
+    public void writeNdjsonGzip(ExportQuery query, OutputStream out) {
+        streamRows(query, rows -> {
+            GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+            // The generator must not close the response stream, only finish the gzip trailer
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(gzip)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null)) {
+                while (rows.hasNext()) {
+                    Object[] row = rows.next();
+                    json.writeStartObject();
+                    for (int i = 0; i < row.length; i++) {
+                        json.writeFieldName(COLUMNS[i]);
+                        writeJsonValue(json, row[i]);
+                    }
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                }
+                json.flush();
+                gzip.finish();
+            }
+        });
+    }
+
+    private interface RowWriter {
+        void write(Iterator<Object[]> rows) throws IOException;
+    }
+
+    private void streamRows(ExportQuery query, RowWriter rowWriter) {
+        transactionTemplate.executeWithoutResult(status -> {
+            TypedQuery<Object[]> jpaQuery = entityManager.createQuery(QUERY, Object[].class)
+                    .setParameter("from", query.from())
+                    .setParameter("to", query.to())
+                    .setParameter("type", query.type())
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true);
+            try (Stream<Object[]> rows = jpaQuery.getResultStream()) {
+                rowWriter.write(rows.iterator());
+            } catch (IOException e) {
+                // Mostly the client going away mid-download
+                throw new UncheckedIOException("Ticket export aborted: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private static void writeCsvField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = toText(value);
+        // Text starting with a formula character would be evaluated by spreadsheet apps
+        if (!text.isEmpty() && !(value instanceof Number) && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeJsonValue(JsonGenerator json, Object value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof Number number) {
+            json.writeNumber(number.longValue());
+        } else {
+            json.writeString(toText(value));
+        }
+    }
+
+    private static String toText(Object value) {
+        return value instanceof LocalDateTime time ? DATE_TIME.format(time) : value.toString();
+    }
+
+    private static boolean isMySqlWithoutCursorFetch(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            String url = connection.getMetaData().getURL();
+            return "MySQL".equalsIgnoreCase(product) && (url == null || !url.contains("useCursorFetch=true"));
+        } catch (Exception e) {
+            System.err.println("Could not detect the database for ticket export streaming: " + e.getMessage());
+            return false;
+        }
+    }
+}
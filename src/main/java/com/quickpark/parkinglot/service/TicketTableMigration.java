@@ -0,0 +1,172 @@
+package com.quickpark.parkinglot.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/*
+ * Keeps the ticket tables in shape:
+ * - moves the rows of the old single `tickets` table into parked_tickets and ticket_history once,
+ *   then renames it to tickets_legacy so it is never read again
+ * - on MySQL, partitions ticket_history by exit month and keeps a few empty months ahead of today,
+ *   so revenue, export and rollup queries on an exit time range only touch the months they cover
+ * Runs while the context starts, before the web server takes requests. The TransactionTemplate
+ * dependency makes sure the Flyway migrations (which create the new tables) have run by then.
+ */
+@Component
+public class TicketTableMigration {
+
+    private static final String LEGACY_TABLE = "tickets";
+    private static final String TICKET_COLUMNS = "id, first_name, last_name, email, owner_contact, entry_time, "
+            + "vehicle_no, vehicle_model, parking_spot_id";
+    private static final String HISTORY_COLUMNS = TICKET_COLUMNS + ", exit_time, total_duration, total_cost";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${tickets.history.partition-months-ahead:3}")
+    private int partitionMonthsAhead;
+
+    public TicketTableMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (tableExists(LEGACY_TABLE)) {
+            migrateLegacyTickets();
+        }
+        if (isMySql()) {
+            partitionHistory();
+        }
+    }
+
+    // Copies active and finished tickets out of the old SINGLE_TABLE `tickets`, ids are kept
+    void migrateLegacyTickets() {
+        long startTime = System.currentTimeMillis();
+        // NOT EXISTS guards make a rerun after a crash before the rename safe
+        int[] moved = transactionTemplate.execute(status -> new int[] {
+                jdbcTemplate.update("INSERT INTO parked_tickets (" + TICKET_COLUMNS + ") SELECT " + TICKET_COLUMNS
+                        + " FROM tickets t WHERE t.dtype = 'ParkedTicket'"
+                        + " AND NOT EXISTS (SELECT 1 FROM parked_tickets p WHERE p.id = t.id)"),
+                jdbcTemplate.update("INSERT INTO ticket_history (" + HISTORY_COLUMNS + ") SELECT " + HISTORY_COLUMNS
+                        + " FROM tickets t WHERE t.dtype = 'UnparkedTicket'"
+                        + " AND NOT EXISTS (SELECT 1 FROM ticket_history h WHERE h.id = t.id)") });
+
+        // New parked tickets must not reuse an id that is already in the history
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM tickets", Long.class);
+        if (isMySql()) {
+            jdbcTemplate.execute("ALTER TABLE parked_tickets AUTO_INCREMENT = " + (maxId + 1));
+        } else {
+            jdbcTemplate.execute("ALTER TABLE parked_tickets ALTER COLUMN id RESTART WITH " + (maxId + 1));
+        }
+        jdbcTemplate.execute("ALTER TABLE tickets RENAME TO tickets_legacy");
+        System.out.println("Tickets migrated: " + moved[0] + " parked, " + moved[1] + " history in "
+                + (System.currentTimeMillis() - startTime) + " ms, old table kept as tickets_legacy");
+    }
+
+    /*
+     * Partitions ticket_history by month of exit_time, from the oldest ticket to a few months ahead plus a
+     * catch-all pmax. MySQL wants the partitioning column in every unique key, so the primary key becomes
+     * (id, exit_time); ids stay unique because they come from parked_tickets.
+     */
+    void partitionHistory() {
+        if (!partitionNames().isEmpty()) {
+            addUpcomingPartitions();
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(exit_time) FROM ticket_history",
+                LocalDateTime.class);
+        YearMonth from = oldest == null ? YearMonth.now() : YearMonth.from(oldest);
+        YearMonth to = YearMonth.now().plusMonths(partitionMonthsAhead);
+
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            partitions.append(monthPartition(month)).append(", ");
+        }
+        partitions.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE)");
+
+        jdbcTemplate.execute("ALTER TABLE ticket_history DROP PRIMARY KEY, ADD PRIMARY KEY (id, exit_time)");
+        jdbcTemplate.execute("ALTER TABLE ticket_history PARTITION BY RANGE COLUMNS(exit_time) (" + partitions + ")");
+        System.out.println("Ticket history partitioned by month from " + from + " to " + to + " in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    // Splits months off pmax until the partitions reach the configured months ahead of today
+    @Scheduled(cron = "${tickets.history.partition-cron:0 15 3 * * *}")
+    public void addUpcomingPartitions() {
+        try {
+            if (!isMySql()) {
+                return;
+            }
+            List<String> names = partitionNames();
+            if (names.size() < 2 || !MAX_PARTITION.equals(names.get(names.size() - 1))) {
+                return; // not partitioned by this class
+            }
+            YearMonth last = YearMonth.parse(names.get(names.size() - 2), PARTITION_NAME);
+            YearMonth to = YearMonth.now().plusMonths(partitionMonthsAhead);
+            if (!last.isBefore(to)) {
+                return;
+            }
+            StringBuilder partitions = new StringBuilder();
+            for (YearMonth month = last.plusMonths(1); !month.isAfter(to); month = month.plusMonths(1)) {
+                partitions.append(monthPartition(month)).append(", ");
+            }
+            partitions.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE)");
+            jdbcTemplate.execute("ALTER TABLE ticket_history REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                    + partitions + ")");
+            System.out.println("Ticket history partitions added up to " + to);
+        } catch (Exception e) {
+            // Rows still land in pmax, only the pruning of future months suffers
+            System.err.println("Failed to add ticket history partitions: " + e.getMessage());
+        }
+    }
+
+    private static String monthPartition(YearMonth month) {
+        LocalDate end = month.plusMonths(1).atDay(1);
+        return "PARTITION " + PARTITION_NAME.format(month.atDay(1)) + " VALUES LESS THAN ('" + end + " 00:00:00')";
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'ticket_history' AND PARTITION_NAME IS NOT NULL "
+                + "ORDER BY PARTITION_ORDINAL_POSITION", String.class);
+    }
+
+    private boolean isMySql() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> "MySQL"
+                .equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    // Table names are stored lower case on MySQL and upper case on H2
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new String[] { table, table.toUpperCase() }) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name,
+                        new String[] { "TABLE" })) {
+                    if (tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+}
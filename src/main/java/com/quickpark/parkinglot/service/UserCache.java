@@ -0,0 +1,124 @@
+package com.quickpark.parkinglot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quickpark.parkinglot.entities.User;
+import com.quickpark.parkinglot.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/*
+ * Read-through cache of users by email and by contact number for the read-only paths
+ * (park, profile, history), so a park no longer costs a users read. Signin reads the database, since
+ * evict() only clears this instance and a password changed through another one must stop working at once.
+ * Flows that modify a user load it from UserRepository as before and call evict() after saving.
+ * Callers always get a copy, the cached instance is never handed out.
+ * Entries are bounded by user.cache.max-size and expire after user.cache.ttl-seconds,
+ * which also limits how long a change made outside this service (e.g. straight in the database) stays invisible.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, User> usersByEmail;
+    private final Cache<String, String> emailsByContactNo;
+
+    public UserCache(UserRepository userRepository,
+            @Value("${user.cache.max-size:10000}") long maxSize,
+            @Value("${user.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.usersByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.emailsByContactNo = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    // Returns null when there is no such user, misses are not cached so a new signup is seen straight away
+    public User findByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        User user = usersByEmail.getIfPresent(email);
+        if (user == null) {
+            user = userRepository.findByEmail(email);
+            if (user == null) {
+                return null;
+            }
+            put(user);
+        }
+        return new User(user);
+    }
+
+    public User findByContactNo(String contactNo) {
+        if (contactNo == null) {
+            return null;
+        }
+        String email = emailsByContactNo.getIfPresent(contactNo);
+        if (email != null) {
+            User user = findByEmail(email);
+            // The number may have moved to someone else since it was cached
+            if (user != null && contactNo.equals(user.getContactNo())) {
+                return user;
+            }
+            emailsByContactNo.invalidate(contactNo);
+        }
+        User user = userRepository.findByContactNo(contactNo);
+        if (user == null) {
+            return null;
+        }
+        put(user);
+        return new User(user);
+    }
+
+    public boolean existsByEmail(String email) {
+        return findByEmail(email) != null;
+    }
+
+    /*
+     * Drop a user after it was modified. Inside a transaction the entry is dropped again after
+     * completion, a concurrent reader could have reloaded the old row before the commit.
+     */
+    public void evict(User user) {
+        evictNow(user.getEmail(), user.getContactNo());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            String email = user.getEmail();
+            String contactNo = user.getContactNo();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(email, contactNo);
+                }
+            });
+        }
+    }
+
+    private void evictNow(String email, String contactNo) {
+        User cached = email == null ? null : usersByEmail.getIfPresent(email);
+        if (cached != null && cached.getContactNo() != null) {
+            // Old number of a contact change
+            emailsByContactNo.invalidate(cached.getContactNo());
+        }
+        if (email != null) {
+            usersByEmail.invalidate(email);
+        }
+        if (contactNo != null) {
+            emailsByContactNo.invalidate(contactNo);
+        }
+    }
+
+    private void put(User user) {
+        User cached = new User(user);
+        usersByEmail.put(cached.getEmail(), cached);
+        if (cached.getContactNo() != null) {
+            emailsByContactNo.put(cached.getContactNo(), cached.getEmail());
+        }
+    }
+}
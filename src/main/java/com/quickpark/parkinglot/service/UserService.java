@@ -10,6 +10,8 @@ import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 import com.quickpark.parkinglot.config.JWT;
 import com.quickpark.parkinglot.entities.User;
+import com.quickpark.parkinglot.request.SigninRequest;
+import com.quickpark.parkinglot.request.SignupRequest;
 import com.quickpark.parkinglot.entities.ParkedTicket;
 import com.quickpark.parkinglot.entities.UnparkedTicket;
 import com.quickpark.parkinglot.repository.ParkedTicketRepository;
@@ -18,6 +20,7 @@ import com.quickpark.parkinglot.repository.UserRepository;
 import com.quickpark.parkinglot.Exceptions.*;
 import jakarta.mail.SendFailedException;
 import org.springframework.dao.DuplicateKeyException;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class UserService implements IUserService {
@@ -29,11 +32,16 @@ public class UserService implements IUserService {
     private final ParkedTicketRepository parkedTicketRepository;
     private final UnparkedTicketRepository unparkedTicketRepository;
     private final EmailService emailService;
+    private final ParkingMetrics metrics;
+    private final UserCache userCache;
 
     public UserService(PasswordEncoder passwordEncoder, JWT jwtUtil, UserRepository userRepository,
             Validation validation, ParkedTicketRepository parkedTicketRepository,
-            UnparkedTicketRepository unparkedTicketRepository, EmailService emailService) {
+            UnparkedTicketRepository unparkedTicketRepository, EmailService emailService, ParkingMetrics metrics,
+            UserCache userCache) {
         this.passwordEncoder = passwordEncoder;
+        this.metrics = metrics;
+        this.userCache = userCache;
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
         this.parkedTicketRepository = parkedTicketRepository;
@@ -44,39 +52,18 @@ public class UserService implements IUserService {
 
     @Override
     @Transactional(isolation = Isolation.SERIALIZABLE)
-    public synchronized Map<String, String> registerUser(Map<String, String> signupRequest) {
+    public synchronized Map<String, String> registerUser(SignupRequest signupRequest) {
         try {
-            String firstName = signupRequest.get("firstName");
-            String lastName = signupRequest.get("lastName");
-            String email = signupRequest.get("email");
-            String contactNo = signupRequest.get("contactNo");
-            String password = signupRequest.get("password");
-            String address = signupRequest.get("address");
-            String secretKey = signupRequest.get("secretKey");
+            // The record has already trimmed the fields
+            String firstName = signupRequest.firstName();
+            String lastName = signupRequest.lastName();
+            String email = signupRequest.email();
+            String contactNo = signupRequest.contactNo();
+            String password = signupRequest.password();
+            String address = signupRequest.address();
+            String secretKey = signupRequest.secretKey();
             String role = "USER"; // Default role is USER, will be changed to ADMIN if valid secret key is
                                   // provided
-            // Trim the trailing and leading spaces from all string fields
-            if (firstName != null) {
-                firstName = firstName.trim();
-            }
-            if (lastName != null) {
-                lastName = lastName.trim();
-            }
-            if (email != null) {
-                email = email.trim();
-            }
-            if (contactNo != null) {
-                contactNo = contactNo.trim();
-            }
-            if (password != null) {
-                password = password.trim();
-            }
-            if (address != null) {
-                address = address.trim();
-            }
-            if (secretKey != null) {
-                secretKey = secretKey.trim();
-            }
             // Mandatory fields check
             if (firstName == null || firstName.isEmpty()) {
                 throw new ValidationException("First name is required");
@@ -152,8 +139,12 @@ public class UserService implements IUserService {
 
             userRepository.save(newUser);
 
-            // Send verification email asynchronously
-            emailService.sendEmailVerificationEmail(email, firstName, lastName, verificationToken);
+            // Queue the verification email, the account exists either way and the link can be resent
+            try {
+                emailService.sendEmailVerificationEmail(email, firstName, lastName, verificationToken);
+            } catch (Exception e) {
+                System.err.println("Failed to queue verification email to " + email + ": " + e.getMessage());
+            }
 
             // No JWT token until email is verified
             return Map.of(
@@ -167,21 +158,19 @@ public class UserService implements IUserService {
     }
 
     @Override
-    public Map<String, String> validateUser(String email, String contactNo, String password) {
+    public Map<String, String> validateUser(SigninRequest signinRequest) {
+        Timer.Sample sample = metrics.startTimer();
+        boolean signedIn = false;
         try {
-            // Trim the trailing and leading spaces from all string fields
-            if (email != null) {
-                email = email.trim();
-            }
-            if (contactNo != null) {
-                contactNo = contactNo.trim();
-            }
-            if (password != null) {
-                password = password.trim();
-            }
+            // The record has already trimmed the fields
+            String email = signinRequest.email();
+            String contactNo = signinRequest.contactNo();
+            String password = signinRequest.password();
             if (password == null || password.isEmpty()) {
                 throw new ValidationException("Password is required");
             }
+            // Read from the database, not UserCache: a copy cached on this instance can still carry the hash
+            // that a password reset through another instance replaced
             User user = null;
 
             // If email is provided, validate using email
@@ -219,6 +208,7 @@ public class UserService implements IUserService {
 
             // Validated, generate and return JWT token with roles
             String token = jwtUtil.generateToken(email, user.getRole());
+            signedIn = true;
             return Map.of(
                     "email", email,
                     "token", token,
@@ -227,6 +217,8 @@ public class UserService implements IUserService {
                     "role", user.getRole());
         } catch (Exception e) {
             throw new RuntimeException("Error validating user: " + e.getMessage());
+        } finally {
+            metrics.signinCompleted(sample, signedIn);
         }
     }
 
@@ -276,6 +268,7 @@ public class UserService implements IUserService {
                 existingUser.setAddress(address);
             }
             userRepository.save(existingUser);
+            userCache.evict(existingUser);
             return existingUser;
         } catch (Exception e) {
             throw new RuntimeException("Error updating user details: " + e.getMessage());
@@ -314,6 +307,7 @@ public class UserService implements IUserService {
             user.setOtp(otp);
             user.setExpiresIn(LocalDateTime.now().plusMinutes(10)); // OTP valid for 10 minutes
             userRepository.save(user);
+            userCache.evict(user);
             return true;
         } catch (Exception e) {
             return false;
@@ -353,6 +347,7 @@ public class UserService implements IUserService {
             user.setOtp(null);
             user.setExpiresIn(null);
             userRepository.save(user);
+            userCache.evict(user);
             // OTP verified successfully
             return true;
         } catch (Exception e) {
@@ -390,6 +385,7 @@ public class UserService implements IUserService {
             }
             user.setPassword(passwordEncoder.encode(newPassword));
             userRepository.save(user);
+            userCache.evict(user);
             return Map.of(
                     "success", true,
                     "email", email,
@@ -442,6 +438,7 @@ public class UserService implements IUserService {
             user.setPassword(passwordEncoder.encode(newPassword));
             try {
                 userRepository.save(user);
+                userCache.evict(user);
             } catch (Exception e) {
                 return false;
             }
@@ -488,6 +485,7 @@ public class UserService implements IUserService {
             user.setContactNo(newContactNo);
             try {
                 userRepository.save(user);
+                userCache.evict(user);
             } catch (DuplicateKeyException e) {
                 // Handle race condition: another thread inserted the same contact number
                 throw new DuplicateResourceException("User with this contact number already exists");
@@ -510,7 +508,7 @@ public class UserService implements IUserService {
             if (!validation.isValidEmail(email)) {
                 throw new ValidationException("Invalid email format");
             }
-            User user = userRepository.findByEmail(email);
+            User user = userCache.findByEmail(email);
             if (user == null) {
                 throw new ResourceNotFoundException("User with this email does not exist");
             }
@@ -534,7 +532,7 @@ public class UserService implements IUserService {
             if (!validation.isValidEmail(email)) {
                 throw new ValidationException("Invalid email format");
             }
-            if (!userRepository.existsByEmail(email)) {
+            if (!userCache.existsByEmail(email)) {
                 throw new ResourceNotFoundException("User with this email does not exist");
             }
             List<ParkedTicket> parkedTickets = parkedTicketRepository.findByEmail(email);
@@ -580,6 +578,7 @@ public class UserService implements IUserService {
             user.setEmailVerificationToken(null);
             user.setTokenExpiresAt(null);
             userRepository.save(user);
+            userCache.evict(user);
 
             return Map.of(
                     "message", "Email verified successfully! You can now sign in.",
@@ -619,6 +618,7 @@ public class UserService implements IUserService {
             user.setEmailVerificationToken(newToken);
             user.setTokenExpiresAt(newExpiry);
             userRepository.save(user);
+            userCache.evict(user);
 
             // Send new verification email
             emailService.sendEmailVerificationEmail(email, user.getFirstName(), user.getLastName(), newToken);
@@ -3,10 +3,21 @@ package com.quickpark.parkinglot.service;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
+import java.util.regex.Pattern;
 
+/*
+ * Field validation for the request bodies
+ * Patterns are compiled once, String.matches would compile them again on every call
+ * The fixed format fields (contact and vehicle number) are checked with a plain character scan
+ */
 @Service
 public class Validation {
 
+    private static final Pattern EMAIL = Pattern.compile("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$");
+    private static final Pattern PASSWORD = Pattern
+            .compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]{6,15}$");
+    private static final Pattern DATE_TIME = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}$");
+
     @Value("${ADMIN_SECRET_KEY}")
     private String adminSecretKey;
 
@@ -18,8 +29,7 @@ public class Validation {
          * Simple regex for email validation
          * Example: user@example.com
          */
-        String emailRegex = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-        return email != null && email.matches(emailRegex);
+        return email != null && EMAIL.matcher(email).matches();
     }
 
     boolean isValidContactNo(String contactNo) {
@@ -27,8 +37,14 @@ public class Validation {
          * A 10 digit contact number with no leading zero and starts with digits 6-9
          * Example: 9876543210, 6123456789, 7890123456, 890123456
          */
-        String contactNoRegex = "^[6-9][0-9]{9}$";
-        return contactNo != null && contactNo.matches(contactNoRegex);
+        if (contactNo == null || contactNo.length() != 10) {
+            return false;
+        }
+        char first = contactNo.charAt(0);
+        if (first < '6' || first > '9') {
+            return false;
+        }
+        return isDigits(contactNo, 1, 10);
     }
 
     boolean isValidPassword(String password) {
@@ -38,8 +54,7 @@ public class Validation {
          * and one special character
          * Example: Abc@1234
          */
-        String passwordRegex = "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]{6,15}$";
-        return password != null && password.matches(passwordRegex);
+        return password != null && PASSWORD.matcher(password).matches();
     }
 
     boolean isValidVehicleType(String vehicleType) {
@@ -56,8 +71,38 @@ public class Validation {
          * followed by one or two uppercase letters, followed by four digits
          * Example: AB12CD3456 or AB12C3456
          */
-        String vehicleNoRegex = "^[A-Z]{2}[0-9]{2}[A-Z]{1,2}[0-9]{4}$";
-        return vehicleNo != null && vehicleNo.matches(vehicleNoRegex);
+        if (vehicleNo == null) {
+            return false;
+        }
+        int n = vehicleNo.length();
+        if (n != 9 && n != 10) {
+            return false;
+        }
+        // The series is 1 letter for 9 characters, 2 letters for 10
+        return isUpperLetters(vehicleNo, 0, 2)
+                && isDigits(vehicleNo, 2, 4)
+                && isUpperLetters(vehicleNo, 4, n - 4)
+                && isDigits(vehicleNo, n - 4, n);
+    }
+
+    private static boolean isDigits(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUpperLetters(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        return true;
     }
 
     int getCostByVehicleType(String vehicleType) {
@@ -100,8 +145,7 @@ public class Validation {
          * Valid : 2025-11-09T10:30:00
          * Invalid : 2025-13-99T25:61:99
          */
-        String dateRegex = "^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}$";
-        if (!dateStr.matches(dateRegex))
+        if (!DATE_TIME.matcher(dateStr).matches())
             return false;
         String year, month, day, hour, minute, second;
         try {
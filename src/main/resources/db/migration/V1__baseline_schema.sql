@@ -0,0 +1,117 @@
+-- Schema as Hibernate created it with ddl-auto=update before migrations were introduced.
+-- IF NOT EXISTS everywhere: existing databases are baselined at version 0, so this script runs on
+-- them too and only creates the tables they are missing. Constraint names match the ones Hibernate generated.
+
+CREATE TABLE IF NOT EXISTS users (
+    is_email_verified bit NOT NULL,
+    created_at datetime(6),
+    expires_in datetime(6),
+    token_expires_at datetime(6),
+    contact_no varchar(20),
+    address varchar(255),
+    email varchar(255) NOT NULL,
+    email_verification_token varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    otp varchar(255),
+    password varchar(255),
+    role varchar(255),
+    PRIMARY KEY (email),
+    CONSTRAINT UK4evw97yyknewdt98v2o1fvlg5 UNIQUE (contact_no)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS gates (
+    status bit NOT NULL,
+    id bigint NOT NULL AUTO_INCREMENT,
+    guard_name varchar(255),
+    name varchar(255),
+    type varchar(255),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS parking_spots (
+    cost integer NOT NULL,
+    is_active bit NOT NULL,
+    is_booked bit NOT NULL,
+    created_at datetime(6),
+    id bigint NOT NULL AUTO_INCREMENT,
+    updated_at datetime(6),
+    version bigint,
+    dtype varchar(31) NOT NULL,
+    location varchar(50) NOT NULL,
+    type varchar(255),
+    PRIMARY KEY (id),
+    CONSTRAINT UKg6u58we3xbae2dbw72939scid UNIQUE (location)
+) ENGINE=InnoDB;
+
+-- Vehicles parked right now
+CREATE TABLE IF NOT EXISTS parked_tickets (
+    entry_time datetime(6),
+    id bigint NOT NULL AUTO_INCREMENT,
+    parking_spot_id bigint,
+    vehicle_no varchar(50) NOT NULL,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    owner_contact varchar(255),
+    vehicle_model varchar(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_parked_tickets_vehicle_no UNIQUE (vehicle_no),
+    INDEX idx_parked_tickets_email (email),
+    CONSTRAINT FKvextil6jue8yd646ht3t5umr FOREIGN KEY (parking_spot_id) REFERENCES parking_spots (id)
+) ENGINE=InnoDB;
+
+-- Finished visits, partitioned by exit month on MySQL at startup (TicketTableMigration), hence no foreign key
+CREATE TABLE IF NOT EXISTS ticket_history (
+    entry_time datetime(6),
+    exit_time datetime(6) NOT NULL,
+    id bigint NOT NULL,
+    parking_spot_id bigint,
+    total_cost bigint NOT NULL,
+    total_duration bigint NOT NULL,
+    vehicle_no varchar(50) NOT NULL,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    owner_contact varchar(255),
+    vehicle_model varchar(255),
+    PRIMARY KEY (id),
+    INDEX idx_ticket_history_exit_time (exit_time),
+    INDEX idx_ticket_history_email (email)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS revenue_hourly (
+    bucket_start datetime(6) NOT NULL,
+    id bigint NOT NULL AUTO_INCREMENT,
+    revenue bigint NOT NULL,
+    tickets bigint NOT NULL,
+    vehicle_type varchar(20) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_revenue_hourly_bucket UNIQUE (bucket_start, vehicle_type)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS revenue_daily (
+    bucket_start datetime(6) NOT NULL,
+    id bigint NOT NULL AUTO_INCREMENT,
+    revenue bigint NOT NULL,
+    tickets bigint NOT NULL,
+    vehicle_type varchar(20) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_revenue_daily_bucket UNIQUE (bucket_start, vehicle_type)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS email_outbox (
+    attempts integer NOT NULL,
+    html bit NOT NULL,
+    created_at datetime(6),
+    id bigint NOT NULL AUTO_INCREMENT,
+    next_attempt_at datetime(6),
+    sent_at datetime(6),
+    status varchar(10) NOT NULL,
+    subject varchar(500) NOT NULL,
+    last_error varchar(1000),
+    to_address varchar(255) NOT NULL,
+    body text NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_email_outbox_status_next (status, next_attempt_at)
+) ENGINE=InnoDB;
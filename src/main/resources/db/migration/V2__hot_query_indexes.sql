@@ -0,0 +1,19 @@
+-- Indexes for the queries on the park, unpark and signup paths, each one named after the repository
+-- methods it serves. RepositoryIndexPlanTest checks that none of them falls back to a table scan.
+
+-- countByTypeAndIsBooked, findFirstByTypeAndIsBooked, findByTypeAndIsBookedAndIsActive, findFreeSpotIds,
+-- lockFirstFreeSpot. InnoDB appends the primary key, so ORDER BY id within a type/status is read in index order.
+CREATE INDEX idx_parking_spots_type_booked_active ON parking_spots (type, is_booked, is_active);
+
+-- findByType, findByTypeAndIsActive, findFirstByTypeOrderByLocationDesc (next location when adding spots)
+CREATE INDEX idx_parking_spots_type_location ON parking_spots (type, location);
+
+-- findByEmailVerificationToken (email verification link)
+CREATE INDEX idx_users_email_verification_token ON users (email_verification_token);
+
+-- Revenue and export ranges read the cost next to the exit time without touching the rows
+CREATE INDEX idx_ticket_history_exit_time_cost ON ticket_history (exit_time, total_cost);
+DROP INDEX idx_ticket_history_exit_time ON ticket_history;
+
+-- The body was created as tinytext (255 bytes) from an unsized @Lob, HTML emails need more
+ALTER TABLE email_outbox MODIFY body text NOT NULL;
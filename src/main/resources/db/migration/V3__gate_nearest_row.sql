@@ -0,0 +1,2 @@
+-- Row of the parking sections closest to each gate, entry gates reserve free spots around it
+ALTER TABLE gates ADD COLUMN nearest_row integer;
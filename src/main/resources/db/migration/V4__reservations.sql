@@ -0,0 +1,19 @@
+-- Spots booked ahead for a time window (Reservation), the in-memory spot calendars are loaded from here
+CREATE TABLE reservations (
+    id bigint NOT NULL AUTO_INCREMENT,
+    email varchar(255) NOT NULL,
+    vehicle_no varchar(50) NOT NULL,
+    parking_spot_id bigint NOT NULL,
+    start_time datetime(6) NOT NULL,
+    end_time datetime(6) NOT NULL,
+    status varchar(10) NOT NULL,
+    created_at datetime(6),
+    PRIMARY KEY (id),
+    -- due reservations to hold (start) and calendar reload (end)
+    INDEX idx_reservations_status_start (status, start_time),
+    INDEX idx_reservations_status_end (status, end_time),
+    -- overlap check for a vehicle
+    INDEX idx_reservations_vehicle_no_status (vehicle_no, status),
+    INDEX idx_reservations_email (email),
+    CONSTRAINT fk_reservations_parking_spot FOREIGN KEY (parking_spot_id) REFERENCES parking_spots (id)
+) ENGINE=InnoDB;
@@ -0,0 +1,9 @@
+-- Last provisioned row/column per parking section (SectionLayout), filled from parking_spots on first start
+CREATE TABLE section_layouts (
+    section integer NOT NULL,
+    type varchar(20) NOT NULL,
+    last_row integer NOT NULL,
+    last_col integer NOT NULL,
+    updated_at datetime(6),
+    PRIMARY KEY (section)
+) ENGINE=InnoDB;
@@ -0,0 +1,13 @@
+-- Revenue rollup backfill state (RevenueRollupService), a single row. The backfill adds the tickets that exited
+-- before cutoff, every later unpark is recorded live. cutoff is set once by the first instance that starts,
+-- done once a backfill committed.
+CREATE TABLE revenue_rollup_backfill (
+    id integer NOT NULL,
+    cutoff datetime(6),
+    done bit NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+-- Rollups that the startup backfill of an earlier version filled are complete already
+INSERT INTO revenue_rollup_backfill (id, cutoff, done)
+SELECT 1, NULL, CASE WHEN EXISTS (SELECT 1 FROM revenue_daily) THEN TRUE ELSE FALSE END;
@@ -0,0 +1,6 @@
+-- One row per vehicle that has reserved (ReservationService). Its row lock serializes the overlap check and
+-- insert of one vehicle's reservations across instances, the row is created on the vehicle's first reservation.
+CREATE TABLE reservation_vehicles (
+    vehicle_no varchar(50) NOT NULL,
+    PRIMARY KEY (vehicle_no)
+) ENGINE=InnoDB;
@@ -0,0 +1,117 @@
+package com.quickpark.parkinglot.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.quickpark.parkinglot.entities.Reservation;
+
+/*
+ * Runs the hot repository queries against H2 with the schema built by the Flyway migrations,
+ * captures the SQL Hibernate generates and fails if H2's EXPLAIN shows a table scan for any of it.
+ * H2 plans with unbound parameters, so the plan doesn't depend on the (empty) data.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:index-plan;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.quickpark.parkinglot.repository.RepositoryIndexPlanTest$SqlCapture" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RepositoryIndexPlanTest {
+
+    // Hibernate creates this from the class name and hands it every statement before it is prepared
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> statements = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+    @Autowired
+    private ParkedTicketRepository parkedTicketRepository;
+    @Autowired
+    private UnparkedTicketRepository unparkedTicketRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestFactory
+    Stream<DynamicTest> hotQueriesUseAnIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Runnable> queries = Map.ofEntries(
+                Map.entry("countByTypeAndIsBooked", () -> parkingSpotRepository.countByTypeAndIsBooked("mini", false)),
+                Map.entry("findFirstByTypeAndIsBookedAndIdNotIn",
+                        () -> parkingSpotRepository.findFirstByTypeAndIsBookedAndIdNotIn("mini", false, List.of(-1L))),
+                Map.entry("findByTypeAndIsBookedAndIsActive",
+                        () -> parkingSpotRepository.findByTypeAndIsBookedAndIsActive("mini", false, true)),
+                Map.entry("findFreeSpots", () -> parkingSpotRepository.findFreeSpots("mini")),
+                Map.entry("existsByTypeAndIsBookedAndIsActiveAndIdNotIn", () -> parkingSpotRepository
+                        .existsByTypeAndIsBookedAndIsActiveAndIdNotIn("mini", false, true, List.of(-1L))),
+                Map.entry("findByLocation", () -> parkingSpotRepository.findByLocation("S1-R1-C1")),
+                Map.entry("findFirstByTypeOrderByLocationDesc",
+                        () -> parkingSpotRepository.findFirstByTypeOrderByLocationDesc("mini")),
+                Map.entry("parked existsByVehicleNo", () -> parkedTicketRepository.existsByVehicleNo("KA01AB1234")),
+                Map.entry("parked findById", () -> parkedTicketRepository.findById(1L)),
+                Map.entry("parked findByEmail", () -> parkedTicketRepository.findByEmail("asha@example.com")),
+                Map.entry("history findByEmail", () -> unparkedTicketRepository.findByEmail("asha@example.com")),
+                Map.entry("history findByExitTimeBetween",
+                        () -> unparkedTicketRepository.findByExitTimeBetween(now.minusDays(1), now)),
+                Map.entry("history sumTotalCostExitedBetween",
+                        () -> unparkedTicketRepository.sumTotalCostExitedBetween(now.minusHours(1), now)),
+                Map.entry("users findByEmail", () -> userRepository.findByEmail("asha@example.com")),
+                Map.entry("users findByEmailVerificationToken",
+                        () -> userRepository.findByEmailVerificationToken("token")),
+                Map.entry("users existsByContactNo", () -> userRepository.existsByContactNo("9876543210")),
+                Map.entry("reservations due",
+                        () -> reservationRepository.findByStatusAndStartTimeLessThanEqual(Reservation.ACTIVE, now)),
+                Map.entry("reservations existsActiveOverlapping",
+                        () -> reservationRepository.existsActiveOverlapping("KA01AB1234", now, now.plusHours(1))),
+                Map.entry("reservations findOpenOverlappingOnSpot",
+                        () -> reservationRepository.findOpenOverlappingOnSpot(1L, now, now.plusHours(1))),
+                Map.entry("reservations findByEmail",
+                        () -> reservationRepository.findByEmailOrderByStartTimeDesc("asha@example.com")),
+                Map.entry("outbox lockDueBatch", () -> outboxEmailRepository.lockDueBatch(now, 50)));
+
+        return queries.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .map(query -> DynamicTest.dynamicTest(query.getKey(), () -> {
+                    SqlCapture.statements.clear();
+                    query.getValue().run();
+                    List<String> selects = SqlCapture.statements.stream()
+                            .filter(sql -> sql.trim().toLowerCase().startsWith("select")).toList();
+                    assertFalse(selects.isEmpty(), "no SELECT captured for " + query.getKey());
+                    for (String sql : selects) {
+                        // Prepared, not bound, the parameters stay ?1, ?2 ... in the plan
+                        String plan = jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+                                rs -> rs.next() ? rs.getString(1) : "");
+                        assertFalse(plan.contains("tableScan"), query.getKey() + " scans a table:\n" + plan);
+                        assertTrue(plan.contains("/*"), query.getKey() + " has no access path:\n" + plan);
+                    }
+                }));
+    }
+}
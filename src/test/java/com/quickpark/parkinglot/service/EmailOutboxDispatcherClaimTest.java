@@ -0,0 +1,142 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.quickpark.parkinglot.entities.OutboxEmail;
+import com.quickpark.parkinglot.repository.OutboxEmailRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+/*
+ * Two dispatchers, like two application instances, draining one outbox in H2 at the same time.
+ * No test transaction, every claim commits so the dispatchers see each other's rows.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox-claim;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailOutboxDispatcherClaimTest {
+
+    private static final int EMAILS = 60;
+
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExecutorService instances = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        instances.shutdownNow();
+        jdbcTemplate.update("DELETE FROM email_outbox");
+    }
+
+    private EmailOutboxDispatcher dispatcher(EmailOutboxDispatcherTest.FakeMailSender mailSender) {
+        EmailOutboxDispatcher dispatcher = new EmailOutboxDispatcher(outboxEmailRepository, mailSender,
+                new ParkingMetrics(new SimpleMeterRegistry()), new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(dispatcher, "fromEmail", "noreply@quickpark.com");
+        ReflectionTestUtils.setField(dispatcher, "fromName", "QuickPark Support");
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 5);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "claimSeconds", 600L);
+        return dispatcher;
+    }
+
+    private static Map<String, Integer> countRecipients(List<MimeMessage[]> sendCalls, Map<String, Integer> counts)
+            throws MessagingException {
+        for (MimeMessage[] messages : sendCalls) {
+            for (MimeMessage message : messages) {
+                for (Address to : message.getAllRecipients()) {
+                    counts.merge(to.toString(), 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    void twoInstancesNeverSendTheSameEmail() throws Exception {
+        List<OutboxEmail> emails = new ArrayList<>();
+        for (int i = 0; i < EMAILS; i++) {
+            emails.add(new OutboxEmail("user" + i + "@example.com", "Ticket " + i, "<p>Body</p>", true));
+        }
+        outboxEmailRepository.saveAll(emails);
+        List<EmailOutboxDispatcherTest.FakeMailSender> senders = List.of(
+                new EmailOutboxDispatcherTest.FakeMailSender(), new EmailOutboxDispatcherTest.FakeMailSender());
+
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> runs = new ArrayList<>();
+        for (EmailOutboxDispatcherTest.FakeMailSender sender : senders) {
+            EmailOutboxDispatcher dispatcher = dispatcher(sender);
+            runs.add(instances.submit(() -> {
+                go.await();
+                // Polls until the outbox is empty, a poll can come back empty while the other instance holds rows
+                while (outboxEmailRepository.countByStatus(OutboxEmail.PENDING) > 0) {
+                    dispatcher.drain();
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> run : runs) {
+            run.get(30, TimeUnit.SECONDS);
+        }
+
+        Map<String, Integer> sent = new HashMap<>();
+        for (EmailOutboxDispatcherTest.FakeMailSender sender : senders) {
+            countRecipients(sender.sendCalls, sent);
+        }
+        assertEquals(EMAILS, sent.size());
+        sent.forEach((to, times) -> assertEquals(1, times, to + " was sent " + times + " times"));
+        assertEquals(EMAILS, outboxEmailRepository.countByStatus(OutboxEmail.SENT));
+    }
+
+    @Test
+    void expiredClaimIsSentAgain() {
+        OutboxEmail email = outboxEmailRepository.save(
+                new OutboxEmail("asha@example.com", "Ticket", "<p>Body</p>", true));
+        // Claimed by an instance that died before recording the outcome
+        jdbcTemplate.update("UPDATE email_outbox SET status = 'SENDING', next_attempt_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), email.getId());
+        EmailOutboxDispatcherTest.FakeMailSender mailSender = new EmailOutboxDispatcherTest.FakeMailSender();
+
+        dispatcher(mailSender).drain();
+
+        assertEquals(1, mailSender.sendCalls.size());
+        assertEquals(OutboxEmail.SENT, outboxEmailRepository.findById(email.getId()).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,162 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.quickpark.parkinglot.entities.OutboxEmail;
+import com.quickpark.parkinglot.repository.OutboxEmailRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+
+class EmailOutboxDispatcherTest {
+
+    // Records every send() call instead of talking to an SMTP server
+    static class FakeMailSender extends JavaMailSenderImpl {
+        final List<MimeMessage[]> sendCalls = new ArrayList<>();
+        int failFirst; // messages at the start of each batch that fail
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch hang = new CountDownLatch(0); // an SMTP server that doesn't answer until released
+
+        @Override
+        public void send(MimeMessage... mimeMessages) {
+            sendCalls.add(mimeMessages);
+            sending.countDown();
+            try {
+                hang.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failFirst > 0) {
+                Map<Object, Exception> failed = new LinkedHashMap<>();
+                for (int i = 0; i < Math.min(failFirst, mimeMessages.length); i++) {
+                    failed.put(mimeMessages[i], new RuntimeException("550 mailbox unavailable"));
+                }
+                throw new MailSendException(failed);
+            }
+        }
+    }
+
+    private final OutboxEmailRepository repository = mock(OutboxEmailRepository.class);
+    private final FakeMailSender mailSender = new FakeMailSender();
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new EmailOutboxDispatcher(repository, mailSender, new ParkingMetrics(new SimpleMeterRegistry()),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(dispatcher, "fromEmail", "noreply@quickpark.com");
+        ReflectionTestUtils.setField(dispatcher, "fromName", "QuickPark Support");
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "retryBaseSeconds", 30L);
+        ReflectionTestUtils.setField(dispatcher, "retryMaxSeconds", 3600L);
+        ReflectionTestUtils.setField(dispatcher, "claimSeconds", 600L);
+    }
+
+    private List<OutboxEmail> queue(int count) {
+        List<OutboxEmail> emails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            emails.add(new OutboxEmail("user" + i + "@example.com", "Subject " + i, "<p>Body</p>", true));
+        }
+        when(repository.lockDueBatch(any(LocalDateTime.class), eq(50))).thenReturn(emails);
+        return emails;
+    }
+
+    @Test
+    void sendsWholeBatchInOneCall() {
+        List<OutboxEmail> emails = queue(5);
+
+        assertEquals(5, dispatcher.dispatchBatch());
+
+        assertEquals(1, mailSender.sendCalls.size());
+        assertEquals(5, mailSender.sendCalls.get(0).length);
+        for (OutboxEmail email : emails) {
+            assertEquals(OutboxEmail.SENT, email.getStatus());
+            assertEquals(0, email.getAttempts());
+        }
+    }
+
+    @Test
+    void failedMessagesAreRetriedWithBackoff() {
+        List<OutboxEmail> emails = queue(3);
+        mailSender.failFirst = 1;
+        LocalDateTime before = LocalDateTime.now();
+
+        dispatcher.dispatchBatch();
+
+        OutboxEmail failed = emails.get(0);
+        assertEquals(OutboxEmail.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertTrue(failed.getNextAttemptAt().isAfter(before.plusSeconds(29)));
+        assertTrue(failed.getLastError().contains("550"));
+        assertEquals(OutboxEmail.SENT, emails.get(1).getStatus());
+        assertEquals(OutboxEmail.SENT, emails.get(2).getStatus());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        List<OutboxEmail> emails = queue(1);
+        mailSender.failFirst = 1;
+        OutboxEmail email = emails.get(0);
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatchBatch();
+        }
+
+        assertEquals(OutboxEmail.FAILED, email.getStatus());
+        assertEquals(3, email.getAttempts());
+        assertNull(email.getSentAt());
+    }
+
+    @Test
+    void otherScheduledJobsKeepRunningWhileASendHangs() throws Exception {
+        queue(1);
+        mailSender.hang = new CountDownLatch(1);
+        // Spring's default: a single scheduler thread shared by every @Scheduled job
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.initialize();
+        AtomicInteger otherJobRuns = new AtomicInteger();
+        try {
+            scheduler.scheduleWithFixedDelay(dispatcher::dispatch, Duration.ofMillis(10));
+            scheduler.scheduleAtFixedRate(otherJobRuns::incrementAndGet, Duration.ofMillis(10));
+            assertTrue(mailSender.sending.await(5, TimeUnit.SECONDS));
+
+            int runsWhenSendStarted = otherJobRuns.get();
+            Thread.sleep(300);
+            assertTrue(otherJobRuns.get() - runsWhenSendStarted >= 10,
+                    "other job ran " + (otherJobRuns.get() - runsWhenSendStarted) + " times");
+            // Polls while the drain hangs don't start a second one
+            assertEquals(1, mailSender.sendCalls.size());
+        } finally {
+            mailSender.hang.countDown();
+            scheduler.shutdown();
+            dispatcher.shutdown();
+        }
+    }
+}
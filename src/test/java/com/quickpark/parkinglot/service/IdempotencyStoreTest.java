@@ -0,0 +1,88 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.Principal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.quickpark.parkinglot.Exceptions.DuplicateResourceException;
+import com.quickpark.parkinglot.Exceptions.ParkingLotException;
+import com.quickpark.parkinglot.Exceptions.ValidationException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IdempotencyStoreTest {
+
+    private static final Principal ALICE = () -> "alice@x.com";
+    private static final Principal BOB = () -> "bob@x.com";
+
+    private final IdempotencyStore store = new IdempotencyStore(new ParkingMetrics(new SimpleMeterRegistry()), 100,
+            3600);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private ResponseEntity<?> ticket() {
+        return ResponseEntity.ok("ticket " + runs.incrementAndGet());
+    }
+
+    @Test
+    void retryWithTheSameKeyReplaysTheFirstResponse() {
+        ResponseEntity<?> first = store.execute("k1", ALICE, "park", "KA01AB0001", this::ticket);
+        ResponseEntity<?> retry = store.execute("k1", ALICE, "park", "KA01AB0001", this::ticket);
+
+        assertEquals("ticket 1", first.getBody());
+        assertNull(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals("ticket 1", retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keysAreScopedByCallerAndOperation() {
+        store.execute("k1", ALICE, "park", "KA01AB0001", this::ticket);
+        store.execute("k1", BOB, "park", "KA01AB0001", this::ticket);
+        store.execute("k1", ALICE, "unpark", "KA01AB0001", this::ticket);
+        store.execute(null, ALICE, "park", "KA01AB0001", this::ticket);
+
+        assertEquals(4, runs.get());
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() {
+        store.execute("k1", ALICE, "park", "KA01AB0001", this::ticket);
+
+        assertThrows(ValidationException.class,
+                () -> store.execute("k1", ALICE, "park", "KA01AB0002", this::ticket));
+        assertThrows(ValidationException.class,
+                () -> store.execute(" ", ALICE, "park", "KA01AB0001", this::ticket));
+    }
+
+    @Test
+    void failedRequestsAreNotStored() {
+        assertThrows(ParkingLotException.class, () -> store.execute("k1", ALICE, "park", "KA01AB0001", () -> {
+            runs.incrementAndGet();
+            throw new ParkingLotException("No available parking spot");
+        }));
+        store.execute("k2", ALICE, "park", "KA01AB0001", () -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+
+        assertEquals("ticket 2", store.execute("k1", ALICE, "park", "KA01AB0001", this::ticket).getBody());
+        assertEquals("ticket 3", store.execute("k2", ALICE, "park", "KA01AB0001", this::ticket).getBody());
+    }
+
+    @Test
+    void retryWhileTheFirstRequestRunsIsRejected() {
+        ResponseEntity<?> first = store.execute("k1", ALICE, "unpark", "42", () -> {
+            assertThrows(DuplicateResourceException.class,
+                    () -> store.execute("k1", ALICE, "unpark", "42", this::ticket));
+            return ticket();
+        });
+
+        assertEquals("ticket 1", first.getBody());
+        assertEquals(1, runs.get());
+    }
+}
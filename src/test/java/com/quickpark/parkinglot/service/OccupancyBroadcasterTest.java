@@ -0,0 +1,101 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.quickpark.parkinglot.entities.DisplayBoard;
+import com.quickpark.parkinglot.response.DisplayResponse;
+
+class OccupancyBroadcasterTest {
+
+    // Records the events instead of writing them to a connection, or blocks like a half-open one
+    static class TestEmitter extends SseEmitter {
+        final BlockingQueue<SseEventBuilder> events = new LinkedBlockingQueue<>();
+        final CountDownLatch released = new CountDownLatch(1);
+        final boolean blocking;
+        volatile boolean completed;
+
+        TestEmitter(boolean blocking) {
+            super(0L);
+            this.blocking = blocking;
+        }
+
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            if (blocking) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(event);
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+
+    private final IParkingService parkingService = mock(IParkingService.class);
+    private final OccupancyBroadcaster broadcaster = new OccupancyBroadcaster(parkingService, 4, 2, 200, 100);
+    private final TestEmitter slow = new TestEmitter(true);
+
+    @AfterEach
+    void tearDown() {
+        slow.released.countDown();
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void stuckSubscriberDelaysNobodyAndIsDropped() throws Exception {
+        when(parkingService.getFreeParkingSpots()).thenAnswer(call -> new DisplayResponse());
+        TestEmitter fast = new TestEmitter(false);
+        broadcaster.subscribe(slow);
+        broadcaster.subscribe(fast);
+        assertNotNull(fast.events.poll(5, TimeUnit.SECONDS), "initial state");
+
+        // The scheduler thread only hands the event over, the stuck write runs elsewhere
+        for (int i = 0; i < 3; i++) {
+            DisplayBoard.getInstance().spotBooked("compact");
+            long start = System.nanoTime();
+            broadcaster.broadcastChanges();
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+            assertNotNull(fast.events.poll(5, TimeUnit.SECONDS), "update " + i);
+        }
+
+        Thread.sleep(300);
+        broadcaster.broadcastChanges();
+        assertTrue(slow.completed);
+        assertEquals(1, broadcaster.subscriberCount());
+    }
+
+    @Test
+    void updateRateIsCheckedAtStartup() {
+        IllegalStateException zero = assertThrows(IllegalStateException.class,
+                () -> new OccupancyBroadcaster(parkingService, 0, 2, 200, 100));
+        assertTrue(zero.getMessage().contains("parking.status.stream.max-updates-per-second"), zero.getMessage());
+        assertThrows(IllegalStateException.class, () -> new OccupancyBroadcaster(parkingService, 1001, 2, 200, 100));
+
+        assertEquals(Duration.ofMillis(250), broadcaster.broadcastPeriod());
+        OccupancyBroadcaster fastest = new OccupancyBroadcaster(parkingService, 1000, 2, 200, 100);
+        assertEquals(Duration.ofMillis(1), fastest.broadcastPeriod());
+        fastest.shutdown();
+    }
+}
@@ -0,0 +1,89 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.quickpark.parkinglot.Exceptions.RateLimitExceededException;
+import com.quickpark.parkinglot.config.RateLimitProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final RateLimiter limiter = limiter(true);
+
+    private RateLimiter limiter(boolean enabled) {
+        RateLimitProperties properties = new RateLimitProperties(enabled, 1000, Map.of(
+                "park", new RateLimitProperties.Budget("/quickpark/api/park", 3, 60, false),
+                "otp", new RateLimitProperties.Budget("/quickpark/api/user/auth/otp/generate", 1, 2, true)));
+        return new RateLimiter(properties, new ParkingMetrics(new SimpleMeterRegistry()), now::get);
+    }
+
+    private void advanceSeconds(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    void burstUpToCapacityThenOneTokenPerRefillInterval() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.acquire("park", "user:a@x.com"));
+        }
+        assertEquals(1, limiter.acquire("park", "user:a@x.com"));
+
+        advanceSeconds(1);
+        assertEquals(0, limiter.acquire("park", "user:a@x.com"));
+        assertEquals(1, limiter.acquire("park", "user:a@x.com"));
+
+        // Idle long enough to refill, but never beyond capacity
+        advanceSeconds(60);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.acquire("park", "user:a@x.com"));
+        }
+        assertEquals(1, limiter.acquire("park", "user:a@x.com"));
+    }
+
+    @Test
+    void keysAndEndpointsHaveTheirOwnBuckets() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("park", "user:a@x.com");
+        }
+        assertEquals(0, limiter.acquire("park", "user:b@x.com"));
+        assertEquals(0, limiter.acquire("park", "ip:10.0.0.1"));
+        assertEquals(0, limiter.acquire("otp", "user:a@x.com"));
+        assertEquals(0, limiter.acquire("signup", "user:a@x.com"));
+    }
+
+    @Test
+    void accountBudgetGivesRetryAfterInWholeSeconds() {
+        limiter.checkAccount("otp", "A@x.com ");
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class,
+                () -> limiter.checkAccount("otp", "a@x.com"));
+        assertEquals(30, e.getRetryAfterSeconds());
+
+        advanceSeconds(30);
+        limiter.checkAccount("otp", "a@x.com");
+        // park has no per-account budget
+        for (int i = 0; i < 10; i++) {
+            limiter.checkAccount("park", "a@x.com");
+        }
+    }
+
+    @Test
+    void disabledLimiterMatchesNothing() {
+        RateLimiter disabled = limiter(false);
+        assertNull(disabled.endpointFor("/quickpark/api/park"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, disabled.acquire("park", "user:a@x.com"));
+        }
+        assertEquals("park", limiter.endpointFor("/quickpark/api/park"));
+        assertNull(limiter.endpointFor("/quickpark/api/unpark"));
+    }
+}
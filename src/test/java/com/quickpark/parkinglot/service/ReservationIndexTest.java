@@ -0,0 +1,155 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReservationIndexTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 11, 9, 0, 0);
+
+    private ReservationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ReservationIndex();
+        index.addSpot(1, "compact");
+        index.addSpot(2, "compact");
+        index.addSpot(3, "mini");
+    }
+
+    @Test
+    void fillsUnreservedSpotsFirstThenFitsAroundExistingWindows() {
+        assertEquals(1L, index.bookAny("compact", at(14), at(18)));
+        assertEquals(2L, index.bookAny("compact", at(15), at(16)));
+        // Both spots are taken at 15:00, spot 2 is free again from 16:00
+        assertNull(index.bookAny("compact", at(15), at(17)));
+        assertEquals(2L, index.bookAny("compact", at(16), at(19)));
+        // Back to back windows don't overlap
+        assertEquals(1L, index.bookAny("compact", at(18), at(20)));
+        assertEquals(1L, index.bookAny("compact", at(10), at(14)));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void windowInsideOrAroundAnExistingOneIsRejected() {
+        assertTrue(index.book(1, at(14), at(18)));
+        assertFalse(index.book(1, at(15), at(16)));
+        assertFalse(index.book(1, at(13), at(19)));
+        assertFalse(index.book(1, at(17), at(20)));
+        assertTrue(index.book(1, at(9), at(14)));
+    }
+
+    @Test
+    void releasedAndEndedWindowsFreeTheSpot() {
+        index.book(3, at(8), at(10));
+        index.book(3, at(12), at(14));
+        assertFalse(index.anyFree("mini", at(9), at(13)));
+
+        index.release(3, at(12));
+        assertTrue(index.anyFree("mini", at(10), at(13)));
+        assertFalse(index.anyFree("mini", at(9), at(11)));
+
+        assertEquals(1, index.pruneEndedBy(at(10)));
+        assertEquals(0, index.size());
+        assertEquals(3L, index.bookAny("mini", at(9), at(11)));
+    }
+
+    @Test
+    void removedSpotKeepsItsWindowsButTakesNoNewOnes() {
+        index.book(1, at(8), at(10));
+        index.removeSpot(1);
+        index.removeSpot(2);
+        assertNull(index.bookAny("compact", at(11), at(12)));
+        assertFalse(index.anyFree("compact", at(11), at(12)));
+        assertEquals(1, index.size());
+
+        index.addSpot(1, "compact");
+        assertFalse(index.book(1, at(9), at(11)));
+        assertEquals(1L, index.bookAny("compact", at(11), at(12)));
+    }
+
+    @Test
+    void searchStaysLogarithmicWhenEverySpotIsReserved() {
+        ReservationIndex full = new ReservationIndex();
+        int spots = 20000;
+        for (long id = 1; id <= spots; id++) {
+            full.addSpot(id, "large");
+            // Every spot is taken through the afternoon, only the last one is free again from 13:00
+            assertTrue(full.book(id, at(8), id == spots ? at(13) : at(18)));
+        }
+        ReservationIndex.GapTree gaps = full.gaps("large");
+        assertEquals(2 * spots, gaps.size());
+
+        assertEquals(spots, full.bookAny("large", at(14), at(16)));
+        // A linear walk would look at thousands of spots, the tree a few dozen nodes
+        assertTrue(gaps.lastVisited() < 200, "visited " + gaps.lastVisited());
+        assertFalse(full.anyFree("large", at(15), at(17)));
+        assertTrue(gaps.lastVisited() < 200, "visited " + gaps.lastVisited());
+    }
+
+    // Random bookings, cancellations and pruning, checked against a plain list of windows per spot
+    @Test
+    void gapsFollowTheCalendarsThroughRandomChanges() {
+        Random random = new Random(42);
+        Map<Long, List<LocalDateTime[]>> model = new HashMap<>();
+        ReservationIndex checked = new ReservationIndex();
+        for (long id = 1; id <= 10; id++) {
+            checked.addSpot(id, "compact");
+            model.put(id, new ArrayList<>());
+        }
+        LocalDateTime prunedTo = DAY;
+        for (int i = 0; i < 5000; i++) {
+            LocalDateTime start = prunedTo.plusMinutes(15L * random.nextInt(200));
+            LocalDateTime end = start.plusMinutes(15L * (1 + random.nextInt(12)));
+            int op = random.nextInt(20);
+            if (op < 12) {
+                Long booked = checked.bookAny("compact", start, end);
+                if (booked == null) {
+                    assertTrue(model.values().stream().noneMatch(windows -> free(windows, start, end)));
+                } else {
+                    assertTrue(free(model.get(booked), start, end));
+                    model.get(booked).add(new LocalDateTime[] { start, end });
+                }
+            } else if (op < 19) {
+                long spotId = 1 + random.nextInt(10);
+                List<LocalDateTime[]> windows = model.get(spotId);
+                if (!windows.isEmpty()) {
+                    checked.release(spotId, windows.remove(random.nextInt(windows.size()))[0]);
+                }
+            } else {
+                LocalDateTime time = prunedTo.plusMinutes(15);
+                prunedTo = time;
+                int ended = 0;
+                for (List<LocalDateTime[]> windows : model.values()) {
+                    int before = windows.size();
+                    windows.removeIf(window -> !window[1].isAfter(time));
+                    ended += before - windows.size();
+                }
+                assertEquals(ended, checked.pruneEndedBy(time));
+            }
+            boolean anyFree = model.values().stream().anyMatch(windows -> free(windows, start, end));
+            assertEquals(anyFree, checked.anyFree("compact", start, end));
+        }
+        assertEquals(model.values().stream().mapToInt(List::size).sum(), checked.size());
+    }
+
+    private static boolean free(List<LocalDateTime[]> windows, LocalDateTime start, LocalDateTime end) {
+        return windows.stream().noneMatch(window -> window[0].isBefore(end) && window[1].isAfter(start));
+    }
+
+    private static LocalDateTime at(int hour) {
+        return DAY.withHour(hour);
+    }
+}
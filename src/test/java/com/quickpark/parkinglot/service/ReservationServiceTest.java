@@ -0,0 +1,165 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.quickpark.parkinglot.Exceptions.ParkingLotException;
+import com.quickpark.parkinglot.Exceptions.ValidationException;
+import com.quickpark.parkinglot.entities.User;
+import com.quickpark.parkinglot.repository.ParkingSpotRepository;
+import com.quickpark.parkinglot.repository.ReservationRepository;
+import com.quickpark.parkinglot.request.ReservationRequest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Two ReservationService instances, each with its own in-memory index, reserving against one H2 database
+ * like two application instances behind a load balancer. No test transaction, every reservation commits.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reservations;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.hikari.maximum-pool-size=20" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationServiceTest {
+
+    private static final int REQUESTS = 8;
+    private static final String EMAIL = "driver@example.com";
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExecutorService requests = Executors.newFixedThreadPool(REQUESTS);
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MINUTES);
+
+    @AfterEach
+    void tearDown() {
+        requests.shutdownNow();
+        jdbcTemplate.update("DELETE FROM reservations");
+        jdbcTemplate.update("DELETE FROM reservation_vehicles");
+        jdbcTemplate.update("DELETE FROM parking_spots");
+    }
+
+    private void addSpots(int count) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> spots = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            spots.add(new Object[] { "CompactParkingSpot", 0L, "compact", 35, "S2-R1-C" + i, true, false, now, now });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO parking_spots (dtype, version, type, cost, location, "
+                + "is_active, is_booked, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", spots);
+    }
+
+    private ReservationService instance() {
+        UserCache userCache = mock(UserCache.class);
+        when(userCache.findByEmail(anyString())).thenReturn(new User());
+        ReservationService service = new ReservationService(reservationRepository, parkingSpotRepository,
+                mock(SpotAllocator.class), userCache, new Validation(),
+                new ParkingMetrics(new SimpleMeterRegistry()), new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(service, "maxDaysAhead", 30);
+        ReflectionTestUtils.setField(service, "maxHours", 24);
+        ReflectionTestUtils.setField(service, "holdBeforeMinutes", 15);
+        ReflectionTestUtils.setField(service, "noShowMinutes", 30);
+        service.loadFromDatabase();
+        return service;
+    }
+
+    private ReservationRequest request(String vehicleNo) {
+        return new ReservationRequest("compact", vehicleNo, start.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                start.plusHours(2).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+    }
+
+    @Test
+    void concurrentRequestsForOneVehicleOnTwoInstancesBookOneWindow() throws Exception {
+        addSpots(REQUESTS);
+        ReservationService[] instances = { instance(), instance() };
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            ReservationService service = instances[i % 2];
+            attempts.add(requests.submit(() -> {
+                go.await();
+                try {
+                    service.reserve(EMAIL, request("KA01AB1234"));
+                    return true;
+                } catch (ParkingLotException e) {
+                    return false;
+                }
+            }));
+        }
+        go.countDown();
+        int reserved = 0;
+        for (Future<Boolean> attempt : attempts) {
+            reserved += attempt.get(30, TimeUnit.SECONDS) ? 1 : 0;
+        }
+
+        assertEquals(1, reserved);
+        assertEquals(1, reservationRepository.count());
+    }
+
+    @Test
+    void spotReservedThroughAnotherInstanceIsNotGivenAgain() {
+        addSpots(2);
+        ReservationService first = instance();
+        ReservationService second = instance();
+
+        long firstSpot = Long.parseLong(first.reserve(EMAIL, request("KA01AB1234")).getParkingSpot().getId());
+        // The second instance's index still has both spots free, the database turns the first one down
+        long secondSpot = Long.parseLong(second.reserve(EMAIL, request("KA01AB1235")).getParkingSpot().getId());
+        assertEquals(firstSpot + 1, secondSpot);
+
+        ParkingLotException full = assertThrows(ParkingLotException.class,
+                () -> second.reserve(EMAIL, request("KA01AB1236")));
+        assertEquals("No compact parking spot is free from " + start + " to " + start.plusHours(2), full.getMessage());
+        assertEquals(2, reservationRepository.count());
+    }
+
+    @Test
+    void windowsInNextYearAreAccepted() {
+        addSpots(1);
+        ReservationService service = instance();
+        int nextYear = LocalDateTime.now().getYear() + 1;
+
+        assertEquals(true, service.checkAvailability("compact", nextYear + "-01-02T10:00:00",
+                nextYear + "-01-02T12:00:00").get("available"));
+        assertThrows(ValidationException.class,
+                () -> service.checkAvailability("compact", nextYear + "-13-02T10:00:00", nextYear + "-13-02T12:00:00"));
+    }
+}
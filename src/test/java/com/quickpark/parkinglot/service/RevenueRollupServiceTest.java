@@ -0,0 +1,153 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.quickpark.parkinglot.entities.CompactParkingSpot;
+import com.quickpark.parkinglot.entities.UnparkedTicket;
+import com.quickpark.parkinglot.repository.DailyRevenueRepository;
+import com.quickpark.parkinglot.repository.HourlyRevenueRepository;
+import com.quickpark.parkinglot.repository.UnparkedTicketRepository;
+
+/*
+ * revenueBetween against the plain SUM over ticket_history, for ranges that start and end inside an hour, on an
+ * hour, on a day boundary, or span several days. Tickets exit every few minutes over three days, some exactly on
+ * hour and day boundaries, and the rollups are filled by the backfill.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:revenue-rollup;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RevenueRollupServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 11, 9, 0, 0);
+
+    @Autowired
+    private HourlyRevenueRepository hourlyRevenueRepository;
+    @Autowired
+    private DailyRevenueRepository dailyRevenueRepository;
+    @Autowired
+    private UnparkedTicketRepository unparkedTicketRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private RevenueRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO parking_spots (id, dtype, version, type, cost, location, is_active, "
+                + "is_booked, created_at, updated_at) VALUES (1, 'CompactParkingSpot', 0, 'compact', 35, 'S2-R1-C1', "
+                + "TRUE, FALSE, ?, ?)", now, now);
+        List<Object[]> tickets = new ArrayList<>();
+        long id = 1;
+        for (LocalDateTime exit = DAY.minusDays(1); exit.isBefore(DAY.plusDays(2)); exit = exit.plusMinutes(17)) {
+            tickets.add(ticket(id++, exit));
+        }
+        // Exactly on the edges of hours and days, and the last second of a day
+        for (LocalDateTime exit : List.of(DAY, DAY.plusHours(10), DAY.plusHours(11), DAY.plusDays(1),
+                DAY.plusDays(1).minusSeconds(1), DAY.plusHours(10).plusSeconds(1))) {
+            tickets.add(ticket(id++, exit));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO ticket_history (id, entry_time, exit_time, parking_spot_id, "
+                + "total_cost, total_duration, vehicle_no) VALUES (?, ?, ?, 1, ?, 60, 'KA01AB1234')", tickets);
+        jdbcTemplate.update("UPDATE revenue_rollup_backfill SET cutoff = ?, done = FALSE WHERE id = 1",
+                Timestamp.valueOf(DAY.plusDays(3)));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        service = new RevenueRollupService(hourlyRevenueRepository, dailyRevenueRepository,
+                unparkedTicketRepository, transactionTemplate, jdbcTemplate);
+        service.backfill();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM ticket_history");
+        jdbcTemplate.update("DELETE FROM revenue_hourly");
+        jdbcTemplate.update("DELETE FROM revenue_daily");
+        jdbcTemplate.update("DELETE FROM parking_spots");
+    }
+
+    private static Object[] ticket(long id, LocalDateTime exit) {
+        // A different cost per ticket, so a ticket counted twice or missed changes the sum
+        return new Object[] { id, Timestamp.valueOf(exit.minusHours(1)), Timestamp.valueOf(exit), 10 + id };
+    }
+
+    private void assertRevenue(LocalDateTime start, LocalDateTime end) {
+        assertEquals(unparkedTicketRepository.sumTotalCostExitedBetween(start, end),
+                service.revenueBetween(start, end), "[" + start + ", " + end + "]");
+    }
+
+    @Test
+    void rangesOnAndBetweenBucketEdges() {
+        // Both ends included: a ticket exiting at 10:00 counts for a range ending or starting at 10:00
+        assertRevenue(DAY.plusHours(10), DAY.plusHours(10));
+        assertRevenue(DAY.plusHours(10), DAY.plusHours(11));
+        assertRevenue(DAY.plusHours(9), DAY.plusHours(10));
+        // Inside one hour, and just around whole hours
+        assertRevenue(DAY.plusHours(10).plusMinutes(30), DAY.plusHours(10).plusMinutes(45));
+        assertRevenue(DAY.plusHours(10).minusSeconds(1), DAY.plusHours(12).plusSeconds(1));
+        assertRevenue(DAY.plusHours(10).plusSeconds(1), DAY.plusHours(11).minusSeconds(1));
+        // Whole days, a day plus its edges, several days with partial hours at both ends
+        assertRevenue(DAY, DAY.plusDays(1));
+        assertRevenue(DAY.minusSeconds(1), DAY.plusDays(1).plusSeconds(1));
+        assertRevenue(DAY.minusDays(1).plusHours(13).plusMinutes(20), DAY.plusDays(1).plusHours(7).plusMinutes(5));
+        assertRevenue(DAY.plusHours(5), DAY.plusDays(2));
+        assertRevenue(DAY.minusDays(1), DAY.plusDays(2));
+        assertEquals(0, service.revenueBetween(DAY.plusHours(11), DAY.plusHours(10)));
+    }
+
+    @Test
+    void randomRangesMatchTheTicketSum() {
+        Random random = new Random(7);
+        long span = 3 * 24 * 3600;
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime start = DAY.minusDays(1).plusSeconds(random.nextLong(span));
+            // Mostly short ranges, some of them several days long
+            long length = random.nextBoolean() ? random.nextLong(3 * 3600) : random.nextLong(span);
+            assertRevenue(start, start.plusSeconds(length));
+        }
+    }
+
+    // record joins the caller's transaction, so a rolled back unpark leaves no trace in the rollups
+    @Test
+    void recordRollsBackWithTheCallersTransaction() {
+        LocalDateTime exit = DAY.plusDays(5).plusHours(3);
+        UnparkedTicket ticket = new UnparkedTicket(9999L, "Asha", "Rao", "asha@example.com", "9876543210",
+                exit.minusHours(2), exit, 120, 70, "KA01AB1234", "Swift", new CompactParkingSpot("S2-R1-C1"));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            service.record(ticket);
+            status.setRollbackOnly();
+        });
+        assertEquals(0, hourlyRevenueRepository.sumRevenue(exit.minusHours(3), exit.plusHours(1)));
+
+        transactionTemplate.executeWithoutResult(status -> service.record(ticket));
+        assertEquals(70, hourlyRevenueRepository.sumRevenue(exit.minusHours(3), exit.plusHours(1)));
+        assertEquals(70, dailyRevenueRepository.sumRevenue(exit.minusDays(1), exit.plusDays(1)));
+    }
+}
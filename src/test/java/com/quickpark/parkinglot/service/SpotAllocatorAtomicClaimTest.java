@@ -0,0 +1,132 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.quickpark.parkinglot.Exceptions.ParkingLotException;
+import com.quickpark.parkinglot.entities.ParkingSpot;
+import com.quickpark.parkinglot.repository.GateRepository;
+import com.quickpark.parkinglot.repository.ParkingSpotRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * The atomic claim mode with as many vehicles as free spots, all parking at once against H2.
+ * H2 applies LIMIT before SKIP LOCKED, so most lock attempts come back empty while free rows exist,
+ * which is exactly the case that must be retried instead of reported as a full lot.
+ * No test transaction, every claim commits its own so the threads see each other's bookings.
+ * Also checks that the database claim modes (atomic, optimistic) leave held spots alone.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:atomic-claim;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.hikari.maximum-pool-size=20" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SpotAllocatorAtomicClaimTest {
+
+    private static final int SPOTS = 16;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+    @Autowired
+    private GateRepository gateRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM parking_spots");
+    }
+
+    private void addSpots(int count) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> spots = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            spots.add(new Object[] { "CompactParkingSpot", 0L, "compact", 35, "S2-R1-C" + i, true, false, now, now });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO parking_spots (dtype, version, type, cost, location, "
+                + "is_active, is_booked, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", spots);
+    }
+
+    private SpotAllocator allocator(String claimMode) {
+        SpotAllocator allocator = new SpotAllocator(parkingSpotRepository, gateRepository, transactionManager,
+                new ParkingMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(allocator, "claimMode", claimMode);
+        return allocator;
+    }
+
+    @Test
+    void everyVehicleGetsASpotWhenThereAreAsManySpotsAsVehicles() throws Exception {
+        addSpots(SPOTS);
+        SpotAllocator allocator = allocator("atomic");
+
+        ExecutorService vehicles = Executors.newFixedThreadPool(SPOTS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> claims = new ArrayList<>();
+            for (int i = 0; i < SPOTS; i++) {
+                claims.add(vehicles.submit(() -> {
+                    start.await();
+                    return allocator.claim("compact").getId();
+                }));
+            }
+            start.countDown();
+            Set<String> claimed = new HashSet<>();
+            for (Future<String> claim : claims) {
+                claimed.add(claim.get(30, TimeUnit.SECONDS));
+            }
+
+            assertEquals(SPOTS, claimed.size());
+            assertEquals(SPOTS, parkingSpotRepository.countByTypeAndIsBooked("compact", true));
+            ParkingLotException full = assertThrows(ParkingLotException.class, () -> allocator.claim("compact"));
+            assertEquals("No free parking spots available for type: compact", full.getMessage());
+        } finally {
+            vehicles.shutdownNow();
+        }
+    }
+
+    // A walk-in must not take the spot held for a reservation that is about to start, in either database mode
+    @ParameterizedTest
+    @ValueSource(strings = { "atomic", "optimistic" })
+    void walkInsSkipHeldSpots(String claimMode) {
+        addSpots(2);
+        SpotAllocator allocator = allocator(claimMode);
+        ParkingSpot held = parkingSpotRepository.findByLocation("S2-R1-C1");
+        allocator.hold(held);
+
+        assertEquals("S2-R1-C2", allocator.claim("compact").getLocation());
+        assertThrows(ParkingLotException.class, () -> allocator.claim("compact"));
+        assertEquals(held.getId(), allocator.claimHeld(Long.parseLong(held.getId())).getId());
+    }
+}
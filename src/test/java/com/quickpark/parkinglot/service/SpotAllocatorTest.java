@@ -0,0 +1,215 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.quickpark.parkinglot.Exceptions.ParkingLotException;
+import com.quickpark.parkinglot.entities.CompactParkingSpot;
+import com.quickpark.parkinglot.entities.Gate;
+import com.quickpark.parkinglot.entities.ParkingSpot;
+import com.quickpark.parkinglot.repository.GateRepository;
+import com.quickpark.parkinglot.repository.ParkingSpotRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Many threads claiming and releasing spots at once, against an in-memory stand-in for parking_spots
+ * whose conditional UPDATEs are compare-and-set, like the row lock makes them in the database.
+ */
+class SpotAllocatorTest {
+
+    private static final int SPOTS = 200;
+    private static final int THREADS = 16;
+    private static final int CLAIMS_PER_THREAD = 2000;
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 11, 9, 8, 0);
+
+    // spot id -> booked, the is_booked column
+    private final Map<Long, AtomicBoolean> booked = new ConcurrentHashMap<>();
+    private final ParkingSpotRepository spotRepository = mock(ParkingSpotRepository.class,
+            withSettings().stubOnly());
+    private final GateRepository gateRepository = mock(GateRepository.class, withSettings().stubOnly());
+    private final ExecutorService threads = Executors.newFixedThreadPool(THREADS + 1);
+    private SpotAllocator allocator;
+
+    private static String location(long id) {
+        return "S2-R" + ((id - 1) / 10 + 1) + "-C" + ((id - 1) % 10 + 1);
+    }
+
+    private static Gate entryGate(long id, int nearestRow) {
+        Gate gate = new Gate(id, "Gate " + id, "entry", "Guard", true);
+        gate.setNearestRow(nearestRow);
+        return gate;
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= SPOTS; id++) {
+            booked.put(id, new AtomicBoolean());
+        }
+        when(spotRepository.findFreeSpots(anyString())).thenAnswer(call -> {
+            List<Object[]> rows = new ArrayList<>();
+            if ("compact".equals(call.getArgument(0))) {
+                booked.forEach((id, isBooked) -> {
+                    if (!isBooked.get()) {
+                        rows.add(new Object[] { id, location(id), 35, 3L, CREATED_AT });
+                    }
+                });
+            }
+            return rows;
+        });
+        when(spotRepository.countByTypeAndBookingAndActiveStatus())
+                .thenReturn(List.<Object[]>of(new Object[] { "compact", false, true, (long) SPOTS }));
+        when(spotRepository.markBookedIfFree(anyLong(), any(LocalDateTime.class)))
+                .thenAnswer(call -> booked.get(call.<Long>getArgument(0)).compareAndSet(false, true) ? 1 : 0);
+        when(spotRepository.markFreeIfBooked(anyLong(), any(LocalDateTime.class)))
+                .thenAnswer(call -> booked.get(call.<Long>getArgument(0)).compareAndSet(true, false) ? 1 : 0);
+        when(spotRepository.findById(anyLong())).thenAnswer(call -> {
+            long id = call.getArgument(0);
+            ParkingSpot spot = new CompactParkingSpot(location(id));
+            spot.setId(String.valueOf(id));
+            spot.setBooked(booked.get(id).get());
+            return Optional.of(spot);
+        });
+        when(gateRepository.findAllByStatus(true)).thenReturn(List.of());
+
+        allocator = new SpotAllocator(spotRepository, gateRepository, mock(PlatformTransactionManager.class),
+                new ParkingMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(allocator, "claimMode", "pool");
+        ReflectionTestUtils.setField(allocator, "gatePoolSize", 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    /*
+     * Every thread claims a spot, checks nobody else holds it, frees it in the database and releases it.
+     * Gate ids are used round robin, null claims from the shared pool.
+     */
+    private void claimAndReleaseConcurrently(Long... gateIds) throws Exception {
+        Map<Long, Integer> holders = new ConcurrentHashMap<>();
+        AtomicReference<String> doubleClaim = new AtomicReference<>();
+        AtomicLong claims = new AtomicLong();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            Long gateId = gateIds[t % gateIds.length];
+            workers.add(threads.submit(() -> {
+                for (int i = 0; i < CLAIMS_PER_THREAD; i++) {
+                    ParkingSpot spot = allocator.claim("compact", gateId);
+                    long id = Long.parseLong(spot.getId());
+                    Integer other = holders.putIfAbsent(id, thread);
+                    if (other != null) {
+                        doubleClaim.compareAndSet(null, "spot " + id + " held by threads " + other + " and " + thread);
+                    }
+                    claims.incrementAndGet();
+                    holders.remove(id);
+                    spotRepository.markFreeIfBooked(id, LocalDateTime.now());
+                    spot.setBooked(false);
+                    allocator.release(spot);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        assertNull(doubleClaim.get());
+        assertEquals((long) THREADS * CLAIMS_PER_THREAD, claims.get());
+    }
+
+    // After the run every spot is free and can be claimed exactly once more, whatever pool it ended up in
+    private void assertEverySpotClaimableOnce(Long gateId) {
+        Set<String> claimed = new HashSet<>();
+        for (int i = 0; i < SPOTS; i++) {
+            assertTrue(claimed.add(allocator.claim("compact", gateId).getId()));
+        }
+        assertThrows(ParkingLotException.class, () -> allocator.claim("compact", gateId));
+        assertTrue(booked.values().stream().allMatch(AtomicBoolean::get));
+    }
+
+    @Test
+    void concurrentClaimsFromTheSharedPoolNeverHandOutASpotTwice() throws Exception {
+        allocator.loadFromDatabase();
+
+        claimAndReleaseConcurrently((Long) null);
+
+        assertEverySpotClaimableOnce(null);
+    }
+
+    @Test
+    void gatePoolsStayExclusiveWhileTheyAreRefilled() throws Exception {
+        when(gateRepository.findAllByStatus(true)).thenReturn(List.of(entryGate(1, 1), entryGate(2, 20)));
+        allocator.loadFromDatabase();
+
+        // The scheduled refill keeps moving spots between the shared pool and the gates during the run
+        AtomicBoolean running = new AtomicBoolean(true);
+        Future<?> refills = threads.submit(() -> {
+            while (running.get()) {
+                allocator.refillGatePools();
+            }
+            return null;
+        });
+        try {
+            claimAndReleaseConcurrently(1L, 2L, null);
+        } finally {
+            running.set(false);
+        }
+        refills.get(10, TimeUnit.SECONDS);
+
+        allocator.refillGatePools();
+        assertEverySpotClaimableOnce(1L);
+    }
+
+    // The claim's UPDATE is the only statement, the booked spot comes from the pool
+    @Test
+    void claimBuildsTheBookedSpotWithoutReadingItBack() {
+        doThrow(new AssertionError("spot read back after the claim")).when(spotRepository).findById(anyLong());
+        when(gateRepository.findAllByStatus(true)).thenReturn(List.of(entryGate(1, 1)));
+        allocator.loadFromDatabase();
+
+        for (Long gateId : new Long[] { null, 1L }) {
+            ParkingSpot spot = allocator.claim("compact", gateId);
+            long id = Long.parseLong(spot.getId());
+            assertTrue(spot instanceof CompactParkingSpot);
+            assertEquals(location(id), spot.getLocation());
+            assertEquals("compact", spot.getType());
+            assertEquals(35, spot.getCost());
+            assertEquals(4L, spot.getVersion());
+            assertEquals(CREATED_AT, spot.getCreatedAt());
+            assertTrue(spot.isBooked() && spot.isActive() && booked.get(id).get());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.quickpark.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.quickpark.parkinglot.config.JWT;
+import com.quickpark.parkinglot.entities.User;
+import com.quickpark.parkinglot.repository.ParkedTicketRepository;
+import com.quickpark.parkinglot.repository.UnparkedTicketRepository;
+import com.quickpark.parkinglot.repository.UserRepository;
+import com.quickpark.parkinglot.request.SigninRequest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UserServiceTest {
+
+    private static final String EMAIL = "asha@example.com";
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    // The users row, shared by every instance
+    private final User stored = new User("Asha", "Rao", EMAIL, "9876543210", passwordEncoder.encode("OldPass@1"),
+            "Street 1", "USER", null, null, null);
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    // A password reset through another instance clears that instance's cache only, this one still has the old copy
+    @Test
+    void signinSeesAPasswordChangedThroughAnotherInstance() {
+        stored.setEmailVerified(true);
+        when(userRepository.findByEmail(EMAIL)).thenAnswer(call -> new User(stored));
+        JWT jwt = mock(JWT.class);
+        when(jwt.generateToken(anyString(), anyString())).thenReturn("token");
+        UserCache userCache = new UserCache(userRepository, 100, 300);
+        UserService service = new UserService(passwordEncoder, jwt, userRepository, new Validation(),
+                mock(ParkedTicketRepository.class), mock(UnparkedTicketRepository.class), mock(EmailService.class),
+                new ParkingMetrics(new SimpleMeterRegistry()), userCache);
+        // Cached by a park or profile read
+        userCache.findByEmail(EMAIL);
+
+        stored.setPassword(passwordEncoder.encode("NewPass@2"));
+
+        RuntimeException old = assertThrows(RuntimeException.class,
+                () -> service.validateUser(new SigninRequest(EMAIL, null, "OldPass@1")));
+        assertTrue(old.getMessage().contains("Incorrect password"), old.getMessage());
+        Map<String, String> signedIn = service.validateUser(new SigninRequest(EMAIL, null, "NewPass@2"));
+        assertEquals("token", signedIn.get("token"));
+    }
+}